@@ -0,0 +1,281 @@
+package fcw;
+
+import fcw.bench.Measurement;
+import fcw.tasks.ApplyDocs;
+import fcw.tasks.GenerateCorpus;
+import fcw.tasks.MakeDocs;
+import fcw.tasks.RemoveComments;
+import org.gradle.api.Action;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.tasks.Sync;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Sets up the offline benchmark of the doc pipeline on synthetic corpora: for each corpus size, tasks which generate
+ * the corpus and run the stages of the pipeline on it, measured with {@link Measurement}, hooked into the
+ * {@code benchmark} task, and runs of makeDocs with each thread count, hooked into the {@code benchmarkScaling} task.
+ *
+ * <p>The corpus sizes in top-level classes are set with {@code -PbenchmarkSizes=<size>,<size>...}, the thread counts
+ * with {@code -PbenchmarkThreads=<threads>,<threads>...}.</p>
+ */
+public class BenchmarkPlugin implements Plugin<Project> {
+    @Override
+    public void apply(Project project) {
+        final ExtraPropertiesExtension ext = project.getExtensions().getExtraProperties();
+        final String docFileExtension = (String) ext.get("DOC_FILE_EXTENSION");
+        final int workerThreads = (Integer) ext.get("WORKER_THREADS");
+
+        final List<Integer> sizes = intList(project.findProperty("benchmarkSizes"), "1000,10000,50000");
+        final List<Integer> scalingThreads = intList(project.findProperty("benchmarkThreads"), "1,2,4,8,16");
+        final File resultsFile = project.file(project.getBuildDir() + "/benchmark/results.csv");
+        final String sizesText = sizes.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        final String threadsText = scalingThreads.stream().map(String::valueOf).collect(Collectors.joining(", "));
+
+        final TaskContainer tasks = project.getTasks();
+        final TaskProvider<Task> benchmark = tasks.register("benchmark", it -> {
+            it.setGroup("benchmark");
+            it.setDescription("Runs the doc pipeline on synthetic corpora of " + sizesText + " classes, appending the results to " + resultsFile.getName());
+        });
+        final TaskProvider<Task> benchmarkScaling = tasks.register("benchmarkScaling", it -> {
+            it.setGroup("benchmark");
+            it.setDescription("Runs makeDocs on synthetic corpora of " + sizesText + " classes with " + threadsText + " threads, appending the results to " + resultsFile.getName());
+        });
+
+        TaskProvider<? extends Task> previous = null;
+        for (final int size : sizes) {
+            final File corpusDir = project.file(project.getBuildDir() + "/benchmark/" + size);
+            final File sourcesDir = new File(corpusDir, "sources");
+            final File docsDir = new File(corpusDir, "docs");
+            final File workDir = new File(corpusDir, "work");
+            final File classIndexDir = new File(corpusDir, "class-index");
+            final TaskProvider<? extends Task> previousBenchmark = previous;
+
+            final TaskProvider<GenerateCorpus> generateTask = tasks.register("generateCorpus" + size, GenerateCorpus.class, it -> {
+                it.setGroup("benchmark");
+                it.setDescription("Generate a synthetic corpus of " + size + " classes");
+                if (previousBenchmark != null) it.mustRunAfter(previousBenchmark);
+                it.outputDir = corpusDir;
+                it.classes = size;
+            });
+
+            // Like the real dependencies, the classes of the corpus are resolved from a jar
+            final Configuration corpus = project.getConfigurations().detachedConfiguration(
+                project.getDependencies().create(project.files(new File(corpusDir, "corpus.jar"))));
+
+            final TaskProvider<MakeDocs> makeDocsTask = tasks.register("benchmarkMakeDocs" + size, MakeDocs.class, it -> {
+                it.setGroup("benchmark");
+                it.dependsOn(generateTask);
+                it.sourcesDir = sourcesDir;
+                it.docsDir = new File(corpusDir, "made-docs");
+                it.classpath = corpus;
+                it.classIndexDir = classIndexDir;
+                it.docFileExtension = docFileExtension;
+                it.threads = workerThreads;
+                measure(it, new Measured("makeDocs", size, sourcesDir, resultsFile));
+            });
+
+            final TaskProvider<Sync> copyTask = tasks.register("copyCorpus" + size, Sync.class, it -> {
+                it.setGroup("benchmark");
+                it.dependsOn(makeDocsTask);
+                it.from(sourcesDir);
+                it.into(workDir);
+            });
+
+            final TaskProvider<RemoveComments> removeCommentsTask = tasks.register("benchmarkRemoveComments" + size, RemoveComments.class, it -> {
+                it.setGroup("benchmark");
+                it.dependsOn(copyTask);
+                it.sourcesDir = workDir;
+                it.classpath = corpus;
+                it.classIndexDir = classIndexDir;
+                it.threads = workerThreads;
+                measure(it, new Measured("removeComments", size, workDir, resultsFile));
+            });
+
+            final TaskProvider<ApplyDocs> applyDocsTask = tasks.register("benchmarkApplyDocs" + size, ApplyDocs.class, it -> {
+                it.setGroup("benchmark");
+                it.dependsOn(removeCommentsTask);
+                it.docsDir = docsDir;
+                it.sourcesDir = workDir;
+                it.classpath = corpus;
+                it.classIndexDir = classIndexDir;
+                it.docFileExtension = docFileExtension;
+                it.pkgInfoTemplate = project.file("src/package-info-template.java");
+                it.threads = workerThreads;
+                measure(it, new Measured("applyDocs", size, workDir, resultsFile));
+            });
+
+            final TaskProvider<Task> filterTask = tasks.register("benchmarkFilter" + size, it -> {
+                it.setGroup("benchmark");
+                it.dependsOn(applyDocsTask);
+                it.doLast(new Filter(workDir, docsDir, docFileExtension));
+                measure(it, new Measured("filter", size, workDir, resultsFile));
+            });
+            benchmark.configure(it -> it.dependsOn(filterTask));
+            previous = filterTask;
+
+            // Unmeasured, as the first run in the build also warms up the JIT and the class index, which would make
+            // the first thread count look slower than it is
+            final TaskProvider<? extends Task> previousWarmup = previous;
+            final TaskProvider<MakeDocs> warmupTask = tasks.register("benchmarkScaling" + size + "Warmup", MakeDocs.class, it -> {
+                it.setGroup("benchmark");
+                it.dependsOn(generateTask);
+                it.mustRunAfter(previousWarmup);
+                it.sourcesDir = sourcesDir;
+                it.docsDir = new File(corpusDir, "scaling-docs");
+                it.classpath = corpus;
+                it.classIndexDir = classIndexDir;
+                it.docFileExtension = docFileExtension;
+                it.threads = scalingThreads.get(0);
+            });
+            benchmarkScaling.configure(it -> it.dependsOn(warmupTask));
+            previous = warmupTask;
+
+            // The speedup of each thread count is relative to the first one, whose wall time is kept in this file
+            final File baselineFile = new File(corpusDir, "scaling-baseline.txt");
+            for (final int threads : scalingThreads) {
+                final boolean baseline = threads == scalingThreads.get(0);
+                final TaskProvider<? extends Task> previousScaling = previous;
+                final TaskProvider<MakeDocs> scalingTask = tasks.register("benchmarkScaling" + size + "Threads" + threads, MakeDocs.class, it -> {
+                    it.setGroup("benchmark");
+                    it.dependsOn(generateTask);
+                    it.mustRunAfter(previousScaling);
+                    it.sourcesDir = sourcesDir;
+                    it.docsDir = new File(corpusDir, "scaling-docs");
+                    it.classpath = corpus;
+                    it.classIndexDir = classIndexDir;
+                    it.docFileExtension = docFileExtension;
+                    it.threads = threads;
+                    measure(it, new Measured("makeDocs-" + threads + "-threads", size, sourcesDir, resultsFile)
+                        .withSpeedup(threads, baselineFile, baseline));
+                });
+                benchmarkScaling.configure(it -> it.dependsOn(scalingTask));
+                previous = scalingTask;
+            }
+        }
+    }
+
+    private static void measure(Task task, Measured measured) {
+        task.doFirst(measured.start());
+        task.doLast(measured.stop());
+    }
+
+    private static List<Integer> intList(Object property, String defaultValue) {
+        return Arrays.stream((property == null ? defaultValue : property.toString()).split(","))
+            .map(value -> Integer.parseInt(value.trim()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * The measurement of the actions of a task, as a stage of the benchmark. The start and stop actions are plain
+     * classes rather than closures, so the tasks can be stored in the configuration cache.
+     */
+    private static class Measured {
+        private final String stage;
+        private final int size;
+        private final File sourcesDir;
+        private final File resultsFile;
+        private int threads;
+        private File baselineFile;
+        private boolean baseline;
+        private transient Measurement measurement;
+
+        Measured(String stage, int size, File sourcesDir, File resultsFile) {
+            this.stage = stage;
+            this.size = size;
+            this.sourcesDir = sourcesDir;
+            this.resultsFile = resultsFile;
+        }
+
+        // Logs the speedup over the wall time in the baseline file, or writes it there for the baseline thread count
+        Measured withSpeedup(int threads, File baselineFile, boolean baseline) {
+            this.threads = threads;
+            this.baselineFile = baselineFile;
+            this.baseline = baseline;
+            return this;
+        }
+
+        Action<Task> start() {
+            return new Start(this);
+        }
+
+        Action<Task> stop() {
+            return new Stop(this);
+        }
+
+        void stopped(Task task) throws IOException {
+            task.getLogger().lifecycle(measurement.stop(stage, size, sourcesDir, resultsFile));
+            if (baselineFile == null) return;
+
+            final long wallMillis = Math.max(measurement.getWallMillis(), 1);
+            if (baseline) {
+                Files.write(baselineFile.toPath(), String.valueOf(wallMillis).getBytes(StandardCharsets.UTF_8));
+            } else if (baselineFile.exists()) {
+                final long baselineMillis = Long.parseLong(new String(Files.readAllBytes(baselineFile.toPath()), StandardCharsets.UTF_8).trim());
+                task.getLogger().lifecycle(String.format(Locale.ROOT, "Speedup with %d threads: %.2f", threads,
+                    baselineMillis / (double) wallMillis));
+            }
+        }
+    }
+
+    private static class Start implements Action<Task> {
+        private final Measured measured;
+
+        Start(Measured measured) {
+            this.measured = measured;
+        }
+
+        @Override
+        public void execute(Task task) {
+            measured.measurement = Measurement.start();
+        }
+    }
+
+    private static class Stop implements Action<Task> {
+        private final Measured measured;
+
+        Stop(Measured measured) {
+            this.measured = measured;
+        }
+
+        @Override
+        public void execute(Task task) {
+            try {
+                measured.stopped(task);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class Filter implements Action<Task> {
+        private final File sourcesDir;
+        private final File docsDir;
+        private final String docFileExtension;
+
+        Filter(File sourcesDir, File docsDir, String docFileExtension) {
+            this.sourcesDir = sourcesDir;
+            this.docsDir = docsDir;
+            this.docFileExtension = docFileExtension;
+        }
+
+        @Override
+        public void execute(Task task) {
+            DocUtils.filter(sourcesDir, docsDir, docFileExtension);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package fcw;
+
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A type solver for the classes of several jars, like a {@link JarTypeSolver} per jar, which knows the classes of all
+ * jars from a single class index file and only opens a jar once one of its classes is resolved.
+ *
+ * <p>The index files are kept in a directory shared by all builds, named after the paths, sizes and modification
+ * times of their jars, so the jars are only scanned when they change. Within an index, the class names of each jar
+ * are sorted and stored with the prefix they share with the previous name left out. Like in a
+ * {@code CombinedTypeSolver}, a class in more than one jar is resolved from the first of them.</p>
+ *
+ * <p>Like the other type solvers, a solver is meant to be used by one thread at a time. {@link #fork()} creates a
+ * solver for another thread, which shares the class index but opens the jars and reads the classes on its own.</p>
+ */
+public class ClassIndexTypeSolver implements TypeSolver {
+    private static final int MAGIC = 0x46435749;
+    private static final int VERSION = 1;
+    private static final String CLASS_EXTENSION = ".class";
+
+    private final List<File> jars;
+    // class name (<package>.class[.inner_class]*), jar and class pool name (<package>.class[$inner_class]*)
+    private final Map<String, KnownClass> knownClasses;
+    // Opened on the first class resolved from the jar
+    private final ClassPool[] classPools;
+    private final Map<String, ResolvedReferenceTypeDeclaration> declarations = new HashMap<>();
+    private TypeSolver parent;
+
+    private ClassIndexTypeSolver(List<File> jars, Map<String, KnownClass> knownClasses) {
+        this.jars = jars;
+        this.knownClasses = knownClasses;
+        this.classPools = new ClassPool[jars.size()];
+    }
+
+    /**
+     * Creates a type solver for the jars, reading their classes from the index in the given directory, or scanning
+     * the jars and writing their index if there is none yet.
+     */
+    public static ClassIndexTypeSolver of(Collection<File> jars, File indexDir) throws IOException {
+        final List<File> jarList = new ArrayList<>(jars);
+        final StringBuilder key = new StringBuilder();
+        for (File jar : jarList) {
+            key.append(jar.getAbsolutePath()).append('\n').append(jar.length()).append('\n').append(jar.lastModified()).append('\n');
+        }
+        final Path indexFile = indexDir.toPath().resolve(Hashing.sha1(key.toString()) + ".idx");
+
+        List<List<String>> classes = readIndex(indexFile, jarList.size());
+        if (classes == null) {
+            classes = new ArrayList<>(jarList.size());
+            for (File jar : jarList) {
+                classes.add(scan(jar));
+            }
+            writeIndex(indexFile, classes);
+        }
+
+        final Map<String, KnownClass> knownClasses = new HashMap<>();
+        for (int jar = 0; jar < classes.size(); jar++) {
+            for (String classPoolName : classes.get(jar)) {
+                knownClasses.putIfAbsent(classPoolName.replace('$', '.'), new KnownClass(jar, classPoolName));
+            }
+        }
+        return new ClassIndexTypeSolver(jarList, Collections.unmodifiableMap(knownClasses));
+    }
+
+    /**
+     * Creates a solver of the same classes for use by another thread. The class index is shared, but not the class
+     * pools and declarations.
+     */
+    public ClassIndexTypeSolver fork() {
+        return new ClassIndexTypeSolver(jars, knownClasses);
+    }
+
+    private static List<String> scan(File jar) throws IOException {
+        final List<String> classes = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.endsWith(CLASS_EXTENSION)) {
+                    classes.add(name.substring(0, name.length() - CLASS_EXTENSION.length()).replace('/', '.'));
+                }
+            }
+        }
+        Collections.sort(classes);
+        return classes;
+    }
+
+    private static List<List<String>> readIndex(Path indexFile, int jarCount) {
+        if (!Files.exists(indexFile)) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != jarCount) return null;
+            final List<List<String>> classes = new ArrayList<>(jarCount);
+            for (int jar = 0; jar < jarCount; jar++) {
+                final int count = in.readInt();
+                final List<String> jarClasses = new ArrayList<>(count);
+                String previous = "";
+                for (int i = 0; i < count; i++) {
+                    int shared = in.readUnsignedShort();
+                    previous = previous.substring(0, shared) + in.readUTF();
+                    jarClasses.add(previous);
+                }
+                classes.add(jarClasses);
+            }
+            return classes;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            // The index is rebuilt from the jars
+            return null;
+        }
+    }
+
+    private static void writeIndex(Path indexFile, List<List<String>> classes) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        // Other builds may read the index at the same time, so it is only moved in place once complete
+        final Path temp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(classes.size());
+            for (List<String> jarClasses : classes) {
+                out.writeInt(jarClasses.size());
+                String previous = "";
+                for (String name : jarClasses) {
+                    int shared = 0;
+                    int max = Math.min(Math.min(previous.length(), name.length()), 0xFFFF);
+                    while (shared < max && previous.charAt(shared) == name.charAt(shared)) shared++;
+                    out.writeShort(shared);
+                    out.writeUTF(name.substring(shared));
+                    previous = name;
+                }
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns whether a class of the jars has the given name, without reading the class.
+     */
+    public boolean contains(String name) {
+        return knownClasses.containsKey(name);
+    }
+
+    private ClassPool classPool(int jar) {
+        if (classPools[jar] == null) {
+            try {
+                ClassPool pool = new ClassPool();
+                pool.appendClassPath(jars.get(jar).getAbsolutePath());
+                classPools[jar] = pool;
+            } catch (NotFoundException e) {
+                throw new IllegalStateException("Unable to open jar " + jars.get(jar), e);
+            }
+        }
+        return classPools[jar];
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(TypeSolver parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        final KnownClass known = knownClasses.get(name);
+        if (known == null) return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+
+        // Javassist reads the members of a class lazily and keeps them, so the declarations are worth keeping too
+        ResolvedReferenceTypeDeclaration declaration = declarations.get(name);
+        if (declaration == null) {
+            try {
+                declaration = JavassistFactory.toTypeDeclaration(classPool(known.jar).get(known.classPoolName), getRoot());
+            } catch (NotFoundException e) {
+                throw new IllegalStateException("Class " + known.classPoolName + " is in the class index, but not in "
+                    + jars.get(known.jar), e);
+            }
+            declarations.put(name, declaration);
+        }
+        return SymbolReference.solved(declaration);
+    }
+
+    private static class KnownClass {
+        final int jar;
+        final String classPoolName;
+
+        KnownClass(int jar, String classPoolName) {
+            this.jar = jar;
+            this.classPoolName = classPoolName;
+        }
+    }
+}
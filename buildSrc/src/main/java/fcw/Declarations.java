@@ -0,0 +1,252 @@
+package fcw;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * An index of the types declared in the sources of a workspace, with the names of their members and their
+ * supertypes, against which the references of javadocs are checked the way javadoc resolves them.
+ *
+ * <p>Types outside of the workspace are looked up in the JDK and in the class index of the dependencies. Members of
+ * the JDK are known through reflection, members of dependencies are not known, so references to them are accepted.
+ * Only the names of members are checked, not the parameter types of methods.</p>
+ */
+public class Declarations {
+    // canonical name (<package>.class[.inner_class]*), type
+    private final Map<String, DeclaredType> types = new ConcurrentHashMap<>();
+    private final Set<String> packages = ConcurrentHashMap.newKeySet();
+    private final ClassIndexTypeSolver classIndex;
+    // canonical name, class of the JDK if there is one
+    private final Map<String, Optional<Class<?>>> jdkClasses = new ConcurrentHashMap<>();
+
+    public Declarations(ClassIndexTypeSolver classIndex) {
+        this.classIndex = classIndex;
+    }
+
+    /**
+     * Adds the types declared in the compilation unit, returning the scope names in the unit are resolved in.
+     * Units may be added from several threads at once.
+     */
+    public Scope add(CompilationUnit cu) {
+        final Scope scope = new Scope(cu);
+        packages.add(scope.packageName);
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            type.getFullyQualifiedName().ifPresent(name -> types.put(name, new DeclaredType(type, scope)));
+        }
+        return scope;
+    }
+
+    /**
+     * Checks a reference of a javadoc, {@code [type][#member[(parameters)]]} or a package name, returning the reason
+     * it does not resolve or {@code null} if it does.
+     *
+     * @param context the canonical name of the type the javadoc belongs to, or {@code null} for a package
+     */
+    @Nullable
+    public String check(String reference, Scope scope, @Nullable String context) {
+        final int hash = reference.indexOf('#');
+        final String typeName = hash < 0 ? reference : reference.substring(0, hash);
+        String type = context;
+        if (!typeName.isEmpty()) {
+            type = qualify(typeName, scope, context);
+            if (type == null) {
+                return hash < 0 && packages.contains(typeName) ? null : "reference not found: " + reference;
+            }
+        }
+        if (hash < 0) return null;
+        if (type == null) return "reference not found: " + reference;
+
+        String member = reference.substring(hash + 1);
+        final int parenthesis = member.indexOf('(');
+        if (parenthesis >= 0) member = member.substring(0, parenthesis);
+        return hasMember(type, member, new HashSet<>()) == Boolean.FALSE ? "reference not found: " + reference : null;
+    }
+
+    /**
+     * Resolves the name of a type the way it is resolved in the source: as a member type of the context or one of its
+     * enclosing types, an imported type, a type of the same package, a type of a package imported on demand, a type
+     * of {@code java.lang}, or a fully qualified name. Returns the canonical name, or {@code null} if there is none.
+     */
+    @Nullable
+    public String qualify(String name, Scope scope, @Nullable String context) {
+        final int dot = name.indexOf('.');
+        final String head = dot < 0 ? name : name.substring(0, dot);
+        final String rest = dot < 0 ? "" : name.substring(dot);
+
+        for (String enclosing = context; enclosing != null; ) {
+            DeclaredType type = types.get(enclosing);
+            if (type == null) break;
+            if (type.memberTypes.contains(head) && exists(enclosing + "." + head + rest)) return enclosing + "." + head + rest;
+            enclosing = type.enclosing;
+        }
+        final String imported = scope.imports.get(head);
+        // Imports compile, so they are trusted even when the type is not known
+        if (imported != null) return imported + rest;
+        final String samePackage = scope.packageName.isEmpty() ? name : scope.packageName + "." + name;
+        if (exists(samePackage)) return samePackage;
+        for (String onDemand : scope.onDemandImports) {
+            if (exists(onDemand + "." + name)) return onDemand + "." + name;
+        }
+        if (exists("java.lang." + name)) return "java.lang." + name;
+        if (dot >= 0 && exists(name)) return name;
+        return null;
+    }
+
+    private boolean exists(String canonicalName) {
+        return types.containsKey(canonicalName) || classIndex.contains(canonicalName) || jdkClass(canonicalName).isPresent();
+    }
+
+    private Optional<Class<?>> jdkClass(String canonicalName) {
+        return jdkClasses.computeIfAbsent(canonicalName, name -> {
+            // Try pkg.Outer.Inner as pkg.Outer$Inner and so on, since the package is not known
+            String binaryName = name;
+            while (true) {
+                try {
+                    return Optional.of(Class.forName(binaryName, false, ClassLoader.getSystemClassLoader()));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    int dot = binaryName.lastIndexOf('.');
+                    if (dot < 0) return Optional.empty();
+                    binaryName = binaryName.substring(0, dot) + '$' + binaryName.substring(dot + 1);
+                }
+            }
+        });
+    }
+
+    // Whether the type or one of its supertypes has the member, or null if that is not known
+    @Nullable
+    private Boolean hasMember(String typeName, String member, Set<String> visited) {
+        if (!visited.add(typeName)) return false;
+        final DeclaredType type = types.get(typeName);
+        if (type == null) {
+            final Optional<Class<?>> jdkClass = jdkClass(typeName);
+            return jdkClass.isPresent() ? hasMember(jdkClass.get(), member) : null;
+        }
+        if (type.members.contains(member)) return true;
+
+        boolean known = true;
+        for (String supertype : type.supertypes) {
+            String qualified = qualify(supertype, type.scope, typeName);
+            Boolean found = qualified == null ? null : hasMember(qualified, member, visited);
+            if (found == null) known = false;
+            else if (found) return true;
+        }
+        return known ? false : null;
+    }
+
+    private static boolean hasMember(Class<?> type, String member) {
+        if (type.getSimpleName().equals(member)) return true;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getName().equals(member)) return true;
+            }
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getName().equals(member)) return true;
+            }
+            for (Class<?> anInterface : c.getInterfaces()) {
+                if (hasMember(anInterface, member)) return true;
+            }
+        }
+        // Interfaces have the methods of Object
+        return type.isInterface() && hasMember(Object.class, member);
+    }
+
+    /**
+     * The names a compilation unit resolves type names against: its package and its imports.
+     */
+    public static class Scope {
+        final String packageName;
+        // simple name, canonical name
+        final Map<String, String> imports = new HashMap<>();
+        final List<String> onDemandImports = new ArrayList<>();
+
+        Scope(CompilationUnit cu) {
+            this.packageName = cu.getPackageDeclaration().map(PackageDeclaration::getNameAsString).orElse("");
+            for (ImportDeclaration declaration : cu.getImports()) {
+                if (declaration.isStatic()) continue;
+                if (declaration.isAsterisk()) {
+                    onDemandImports.add(declaration.getNameAsString());
+                } else {
+                    imports.put(declaration.getName().getIdentifier(), declaration.getNameAsString());
+                }
+            }
+        }
+    }
+
+    private static class DeclaredType {
+        final Scope scope;
+        @Nullable final String enclosing;
+        final Set<String> members = new HashSet<>();
+        final Set<String> memberTypes = new HashSet<>();
+        // names as written in the source
+        final List<String> supertypes = new ArrayList<>();
+
+        DeclaredType(TypeDeclaration<?> type, Scope scope) {
+            this.scope = scope;
+            this.enclosing = type.getParentNode()
+                .filter(parent -> parent instanceof TypeDeclaration)
+                .flatMap(parent -> ((TypeDeclaration<?>) parent).getFullyQualifiedName())
+                .orElse(null);
+
+            // A class without constructors has the default one
+            members.add(type.getNameAsString());
+            for (BodyDeclaration<?> member : type.getMembers()) {
+                if (member instanceof FieldDeclaration) {
+                    ((FieldDeclaration) member).getVariables().forEach(variable -> members.add(variable.getNameAsString()));
+                } else if (member instanceof MethodDeclaration) {
+                    members.add(((MethodDeclaration) member).getNameAsString());
+                } else if (member instanceof ConstructorDeclaration) {
+                    members.add(((ConstructorDeclaration) member).getNameAsString());
+                } else if (member instanceof AnnotationMemberDeclaration) {
+                    members.add(((AnnotationMemberDeclaration) member).getNameAsString());
+                } else if (member instanceof TypeDeclaration) {
+                    memberTypes.add(((TypeDeclaration<?>) member).getNameAsString());
+                }
+            }
+
+            if (type instanceof ClassOrInterfaceDeclaration) {
+                ClassOrInterfaceDeclaration declaration = (ClassOrInterfaceDeclaration) type;
+                declaration.getExtendedTypes().forEach(supertype -> supertypes.add(name(supertype)));
+                declaration.getImplementedTypes().forEach(supertype -> supertypes.add(name(supertype)));
+                if (declaration.isInterface() || declaration.getExtendedTypes().isEmpty()) {
+                    supertypes.add("java.lang.Object");
+                }
+            } else if (type instanceof EnumDeclaration) {
+                EnumDeclaration declaration = (EnumDeclaration) type;
+                declaration.getEntries().forEach(entry -> members.add(entry.getNameAsString()));
+                declaration.getImplementedTypes().forEach(supertype -> supertypes.add(name(supertype)));
+                members.add("values");
+                members.add("valueOf");
+                supertypes.add("java.lang.Enum");
+            } else if (type instanceof AnnotationDeclaration) {
+                supertypes.add("java.lang.annotation.Annotation");
+            }
+        }
+
+        private static String name(ClassOrInterfaceType type) {
+            return type.getScope().map(scope -> name(scope) + ".").orElse("") + type.getNameAsString();
+        }
+    }
+}
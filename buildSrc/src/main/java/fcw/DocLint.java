@@ -0,0 +1,160 @@
+package fcw;
+
+import com.github.javaparser.javadoc.Javadoc;
+import com.github.javaparser.javadoc.JavadocBlockTag;
+import com.github.javaparser.javadoc.description.JavadocDescription;
+import com.github.javaparser.javadoc.description.JavadocDescriptionElement;
+import com.github.javaparser.javadoc.description.JavadocInlineTag;
+import com.github.javaparser.javadoc.description.JavadocSnippet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks of javadocs which do not need the sources, a subset of what {@code -Xdoclint:html} reports: unknown or
+ * malformed tags, elements which are not closed or closed without being open, bare {@code <} and {@code >}, and bad
+ * entities. The text of inline tags is not HTML, so it is skipped.
+ */
+public class DocLint {
+    private static final Pattern TAG = Pattern.compile("<(/?)([a-zA-Z][a-zA-Z0-9]*)((?:\\s+[^<>]*?)?)\\s*(/?)>");
+    private static final Pattern COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern ENTITY = Pattern.compile("&(?:#[0-9]+|#[xX][0-9a-fA-F]+|[a-zA-Z][a-zA-Z0-9]*);");
+    // The elements of HTML 5 javadoc accepts in comments
+    private static final Set<String> ELEMENTS = new HashSet<>(Arrays.asList(
+        "a", "abbr", "b", "bdi", "bdo", "blockquote", "br", "caption", "cite", "code", "col", "colgroup", "dd", "del",
+        "dfn", "div", "dl", "dt", "em", "figcaption", "figure", "h1", "h2", "h3", "h4", "h5", "h6", "hr", "i", "img",
+        "ins", "kbd", "li", "mark", "ol", "p", "pre", "q", "s", "samp", "small", "span", "strong", "sub", "sup",
+        "table", "tbody", "td", "tfoot", "th", "thead", "time", "tr", "u", "ul", "var", "wbr"));
+    // Elements without content
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList("br", "col", "hr", "img", "wbr"));
+    // Elements which HTML closes implicitly, so their end tag may be left out
+    private static final Set<String> OPTIONAL_END = new HashSet<>(Arrays.asList(
+        "colgroup", "dd", "dt", "li", "p", "tbody", "td", "tfoot", "th", "thead", "tr"));
+
+    /**
+     * Checks the HTML of the description and of the block tags of the javadoc, returning a message per problem found.
+     */
+    public static List<String> lintHtml(Javadoc javadoc) {
+        final List<String> problems = new ArrayList<>();
+        lintHtml(javadoc.getDescription(), "", problems);
+        for (JavadocBlockTag tag : javadoc.getBlockTags()) {
+            lintHtml(tag.getContent(), " in @" + tag.getTagName(), problems);
+        }
+        return problems;
+    }
+
+    private static void lintHtml(JavadocDescription description, String where, List<String> problems) {
+        final Deque<String> open = new ArrayDeque<>();
+        for (JavadocDescriptionElement element : description.getElements()) {
+            // Elements may be opened and closed around inline tags, so the open elements are kept across snippets
+            if (element instanceof JavadocSnippet) {
+                lintSnippet(COMMENT.matcher(element.toText()).replaceAll(""), open, where, problems);
+            }
+        }
+        for (String element : open) {
+            if (!OPTIONAL_END.contains(element)) problems.add("element not closed: <" + element + ">" + where);
+        }
+    }
+
+    private static void lintSnippet(String text, Deque<String> open, String where, List<String> problems) {
+        final Matcher tag = TAG.matcher(text);
+        int position = 0;
+        while (position < text.length()) {
+            final char c = text.charAt(position);
+            if (c == '<') {
+                if (!tag.find(position) || tag.start() != position) {
+                    problems.add("malformed HTML" + where);
+                    position++;
+                    continue;
+                }
+                lintTag(tag.group(2).toLowerCase(Locale.ROOT), !tag.group(1).isEmpty(), !tag.group(4).isEmpty(), open, where, problems);
+                position = tag.end();
+            } else if (c == '>') {
+                problems.add("bad use of '>'" + where);
+                position++;
+            } else if (c == '&') {
+                final Matcher entity = ENTITY.matcher(text).region(position, text.length());
+                if (!entity.lookingAt()) problems.add("bad HTML entity" + where);
+                position++;
+            } else {
+                position++;
+            }
+        }
+    }
+
+    private static void lintTag(String name, boolean end, boolean selfClosing, Deque<String> open, String where,
+                                List<String> problems) {
+        if (!ELEMENTS.contains(name)) {
+            problems.add("unknown tag: <" + name + ">" + where);
+            return;
+        }
+        if (VOID_ELEMENTS.contains(name)) {
+            if (end) problems.add("invalid end tag: </" + name + ">" + where);
+            return;
+        }
+        if (selfClosing) {
+            problems.add("self-closing element not allowed: <" + name + "/>" + where);
+        } else if (!end) {
+            open.push(name);
+        } else if (!open.contains(name)) {
+            problems.add("unexpected end tag: </" + name + ">" + where);
+        } else {
+            String top;
+            while (!(top = open.pop()).equals(name)) {
+                if (!OPTIONAL_END.contains(top)) problems.add("element not closed: <" + top + ">" + where);
+            }
+        }
+    }
+
+    /**
+     * Returns the targets of the {@code {@link}}, {@code {@linkplain}} and {@code @see} references of the javadoc, in
+     * the form {@code [type][#member[(parameters)]]} or a package name.
+     */
+    public static List<String> references(Javadoc javadoc) {
+        final List<String> references = new ArrayList<>();
+        addReferences(javadoc.getDescription(), references);
+        for (JavadocBlockTag tag : javadoc.getBlockTags()) {
+            if (tag.getType() == JavadocBlockTag.Type.SEE) {
+                // Besides references, @see takes a quoted string or a link
+                final String content = tag.getContent().toText().trim();
+                if (!content.isEmpty() && content.charAt(0) != '"' && content.charAt(0) != '<') {
+                    references.add(target(content));
+                }
+            }
+            addReferences(tag.getContent(), references);
+        }
+        return references;
+    }
+
+    private static void addReferences(JavadocDescription description, List<String> references) {
+        for (JavadocDescriptionElement element : description.getElements()) {
+            if (element instanceof JavadocInlineTag) {
+                final JavadocInlineTag tag = (JavadocInlineTag) element;
+                if (tag.getType() == JavadocInlineTag.Type.LINK || tag.getType() == JavadocInlineTag.Type.LINKPLAIN) {
+                    final String target = target(tag.getContent().trim());
+                    if (!target.isEmpty()) references.add(target);
+                }
+            }
+        }
+    }
+
+    // The reference ends at the first whitespace outside of the parameter list, the rest is its label
+    private static String target(String content) {
+        int depth = 0;
+        for (int i = 0; i < content.length(); i++) {
+            final char c = content.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+            else if (Character.isWhitespace(c) && depth <= 0) return content.substring(0, i);
+        }
+        return content;
+    }
+}
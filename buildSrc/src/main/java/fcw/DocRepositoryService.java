@@ -0,0 +1,47 @@
+package fcw;
+
+import fcw.info.DocRepository;
+import org.gradle.api.Task;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Shares a {@link DocRepository} per docs directory between all tasks of a build, so the doc files are listed, hashed
+ * and decoded once per build instead of once per task.
+ */
+public abstract class DocRepositoryService implements BuildService<BuildServiceParameters.None> {
+    private final Map<String, DocRepository> repositories = new ConcurrentHashMap<>();
+
+    public DocRepository get(File docsDir, String docFileExtension) {
+        return repositories.computeIfAbsent(docsDir.getAbsolutePath() + File.pathSeparator + docFileExtension,
+            key -> new DocRepository(docsDir.toPath(), docFileExtension));
+    }
+
+    public static Provider<DocRepositoryService> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent("docRepository", DocRepositoryService.class, spec -> { });
+    }
+
+    /**
+     * Returns the shared repository of a task, or one of its own if the task was not given the service.
+     */
+    public static DocRepository of(@Nullable Provider<DocRepositoryService> service, File docsDir, String docFileExtension) {
+        return service != null
+            ? service.get().get(docsDir, docFileExtension)
+            : new DocRepository(docsDir.toPath(), docFileExtension);
+    }
+
+    /**
+     * Gives the task the service, which it then declares it uses.
+     */
+    public static Provider<DocRepositoryService> use(Task task, Provider<DocRepositoryService> service) {
+        task.usesService(service);
+        return service;
+    }
+}
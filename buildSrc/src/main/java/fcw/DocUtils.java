@@ -3,6 +3,7 @@ package fcw;
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.comments.JavadocComment;
 import com.github.javaparser.javadoc.Javadoc;
+import fcw.info.DocRepository;
 
 import java.io.File;
 import java.io.IOException;
@@ -33,18 +34,22 @@ public class DocUtils {
     }
 
     public static List<File> filter(File sourceDir, File docsDir, String docFileExtension) {
+        return filter(sourceDir, new DocRepository(docsDir.toPath(), docFileExtension));
+    }
+
+    /**
+     * Returns the source files which have a doc file.
+     */
+    public static List<File> filter(File sourceDir, DocRepository docRepository) {
         Path sourcePath = sourceDir.toPath();
-        Path docsPath = docsDir.toPath();
-        if (Files.notExists(sourcePath) || !Files.isDirectory(sourcePath)
-            || Files.notExists(docsPath) || !Files.isDirectory(docsPath)) {
+        if (Files.notExists(sourcePath) || !Files.isDirectory(sourcePath) || docRepository.files().isEmpty()) {
             return Collections.emptyList();
         }
         try (Stream<Path> paths = Files.walk(sourcePath)) {
             return paths
                 .filter(Files::isRegularFile)
-                .filter(srcFile -> Files.exists(
-                    docsPath.resolve(sourcePath.relativize(srcFile).toString().replace(".java", docFileExtension))
-                ))
+                .filter(srcFile -> srcFile.toString().endsWith(".java"))
+                .filter(srcFile -> docRepository.isListed(docRepository.docFile(sourcePath.relativize(srcFile))))
                 .map(Path::toFile)
                 .collect(Collectors.toList());
         } catch (IOException e) {
@@ -0,0 +1,183 @@
+package fcw;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Schedules work over single files on a fixed pool of threads.
+ *
+ * <p>All files are known up front and handed out largest first, so the largest files do not end up as a serial tail
+ * after all other work is done. Once a run is finished, the utilisation of the pool is logged, and if thread
+ * contention monitoring is enabled, as the benchmark does, the share of the work spent waiting on locks.</p>
+ */
+public class FileScheduler implements AutoCloseable {
+    // Time the threads of all schedulers spent blocked or waiting on locks while processing files
+    private static final AtomicLong LOCK_NANOS = new AtomicLong();
+
+    private final Consumer<String> log;
+    private final String name;
+    private final int threads;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a scheduler which reports to the given log, such as the lifecycle log of a task.
+     */
+    public FileScheduler(Consumer<String> log, String name, int threads) {
+        this.log = log;
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "fcw-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(this.threads, factory);
+    }
+
+    /**
+     * Lists all regular files under the given directory which match the filter.
+     */
+    public static List<Path> collect(Path root, Predicate<Path> filter) throws IOException {
+        if (!Files.isDirectory(root)) return new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                .filter(filter)
+                .collect(Collectors.toList());
+        }
+    }
+
+    public static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the action for all files, ordered by their file size.
+     */
+    public void run(Collection<Path> files, FileAction action) {
+        run(files, FileScheduler::size, action);
+    }
+
+    /**
+     * Runs the action for all files, ordered by the given weight, and waits until all are done. If any action failed,
+     * the first failure is rethrown once all others finished.
+     */
+    public void run(Collection<Path> files, ToLongFunction<Path> weight, FileAction action) {
+        final List<Path> ordered = files.stream()
+            .map(file -> new Weighted(file, weight.applyAsLong(file)))
+            .sorted(Comparator.comparingLong((Weighted w) -> w.weight).reversed())
+            .map(w -> w.file)
+            .collect(Collectors.toList());
+
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong longestNanos = new AtomicLong();
+        final AtomicLong lockNanos = new AtomicLong();
+        final boolean monitored = ManagementFactory.getThreadMXBean().isThreadContentionMonitoringEnabled();
+        final long start = System.nanoTime();
+        final List<Future<?>> futures = new ArrayList<>(ordered.size());
+        for (Path file : ordered) {
+            futures.add(executor.submit(() -> {
+                long fileStart = System.nanoTime();
+                long lockStart = monitored ? threadLockNanos() : 0;
+                try {
+                    action.process(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Exception while processing file " + file, e);
+                } finally {
+                    long took = System.nanoTime() - fileStart;
+                    busyNanos.addAndGet(took);
+                    longestNanos.accumulateAndGet(took, Math::max);
+                    if (monitored) lockNanos.addAndGet(threadLockNanos() - lockStart);
+                }
+            }));
+        }
+
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : new RuntimeException(e.getCause());
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while processing files for " + name, e);
+            }
+        }
+
+        final long wallNanos = Math.max(1, System.nanoTime() - start);
+        log.accept(name + ": processed " + ordered.size() + " files in " + TimeUnit.NANOSECONDS.toMillis(wallNanos)
+            + " ms on " + threads + " threads, " + Math.round(100.0 * busyNanos.get() / ((double) wallNanos * threads))
+            + "% utilisation (longest file " + TimeUnit.NANOSECONDS.toMillis(longestNanos.get()) + " ms)"
+            + (monitored ? ", " + Math.round(100.0 * lockNanos.get() / Math.max(1, busyNanos.get())) + "% of it waiting on locks" : ""));
+        LOCK_NANOS.addAndGet(lockNanos.get());
+
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Returns the time the threads of all schedulers spent blocked or waiting on locks while processing files, which is
+     * only counted while thread contention monitoring is enabled.
+     */
+    public static long lockNanos() {
+        return LOCK_NANOS.get();
+    }
+
+    // Blocked on monitors, such as synchronized methods, or waiting, such as on the locks of java.util.concurrent
+    private static long threadLockNanos() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final ThreadInfo info = threads.getThreadInfo(Thread.currentThread().getId());
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, info.getBlockedTime()) + Math.max(0, info.getWaitedTime()));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public interface FileAction {
+        void process(Path file) throws IOException;
+    }
+
+    private static class Weighted {
+        final Path file;
+        final long weight;
+
+        Weighted(Path file, long weight) {
+            this.file = file;
+            this.weight = weight;
+        }
+    }
+}
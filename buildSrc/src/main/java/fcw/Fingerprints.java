@@ -0,0 +1,78 @@
+package fcw;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * The fingerprints of the source files of a source set, as of the last processing run, kept next to the workspace
+ * together with a copy of the processed source files.
+ *
+ * <p>A source file whose content and doc file are unchanged since the last run is processed to the same output, so
+ * the copy can be reused instead. A file is recorded as reused by carrying the hash of its output; files which have
+ * to be processed again have none until their output is stored.</p>
+ */
+public class Fingerprints {
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static Fingerprints read(@Nullable File file) {
+        if (file == null || !file.exists()) return new Fingerprints();
+        try {
+            return JSON.readValue(file, Fingerprints.class);
+        } catch (IOException e) {
+            // Without fingerprints every file is processed again, which is always correct
+            return new Fingerprints();
+        }
+    }
+
+    /**
+     * Returns the source files relative to their source root which are reused from the last run, and which the
+     * processing tasks should therefore skip.
+     */
+    public static Set<String> reused(@Nullable File file) {
+        if (file == null || !file.exists()) return Collections.emptySet();
+        return read(file).files.entrySet().stream()
+            .filter(entry -> entry.getValue().output != null)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+    }
+
+    public static String localPath(Path root, Path file) {
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    // source file relative to the source root, fingerprint
+    public Map<String, Entry> files = new TreeMap<>();
+
+    public void write(File file) {
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            JSON.writeValue(file, this);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write fingerprints at " + file, e);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        // Hash of the source file as copied from the artifact
+        public String content;
+        // Hash of the declarations of the source file, see ParserUtils#toSignature
+        public String api;
+        // Hash of the doc file of the source file, or null if it has none
+        public String doc;
+        // Hash of the processed source file, or null if it still has to be processed
+        public String output;
+    }
+}
@@ -0,0 +1,49 @@
+package fcw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class Hashing {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static String sha1(byte[] data) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-1").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    public static String sha1(String data) {
+        return sha1(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha1(Path file) throws IOException {
+        return sha1(Files.readAllBytes(file));
+    }
+
+    // The remaining bytes of the buffer, whose position is left as it is
+    public static String sha1(ByteBuffer data) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(data.duplicate());
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
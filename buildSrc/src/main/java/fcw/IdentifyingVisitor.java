@@ -90,11 +90,21 @@ public abstract class IdentifyingVisitor extends VoidVisitorAdapter<IdentifyingV
 
     //
 
+    /**
+     * Returns whether the methods, constructors or annotation members of the given name in the current class are to be
+     * visited. Their descriptors take resolving the parameter types, so visitors skip those they have no use for.
+     */
+    protected boolean needsDescriptor(String name, VisitContext ctx) {
+        return true;
+    }
+
     protected abstract void visitMethod(MethodDeclaration n, String descriptor, VisitContext ctx);
 
     @Override
     public void visit(MethodDeclaration n, VisitContext arg) {
-        visitMethod(n, ParserUtils.toDescriptor(resolver, n), arg);
+        if (needsDescriptor(n.getNameAsString(), arg)) {
+            visitMethod(n, ParserUtils.toDescriptor(resolver, n), arg);
+        }
         super.visit(n, arg);
     }
 
@@ -104,7 +114,9 @@ public abstract class IdentifyingVisitor extends VoidVisitorAdapter<IdentifyingV
 
     @Override
     public void visit(ConstructorDeclaration n, VisitContext arg) {
-        visitConstructor(n, ParserUtils.toDescriptor(resolver, n), arg);
+        if (needsDescriptor(n.getNameAsString(), arg)) {
+            visitConstructor(n, ParserUtils.toDescriptor(resolver, n), arg);
+        }
         super.visit(n, arg);
     }
 
@@ -114,7 +126,9 @@ public abstract class IdentifyingVisitor extends VoidVisitorAdapter<IdentifyingV
 
     @Override
     public void visit(AnnotationMemberDeclaration n, VisitContext arg) {
-        visitAnnotationMember(n, ParserUtils.toDescriptor(resolver, n), arg);
+        if (needsDescriptor(n.getNameAsString(), arg)) {
+            visitAnnotationMember(n, ParserUtils.toDescriptor(resolver, n), arg);
+        }
         super.visit(n, arg);
     }
 
@@ -0,0 +1,224 @@
+package fcw;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * The record of the files a task processed, so a run which failed or was interrupted can be resumed by processing only
+ * the files which are not done yet.
+ *
+ * <p>Every file is recorded as soon as it is processed, with the hash of its input and of its output, or with the
+ * problem it failed with, as a line appended to the journal file. A file counts as done while its input and output
+ * still have the recorded hashes. The journal starts over if the task is run with a different key, e.g. because its
+ * classpath changed.</p>
+ */
+public class Journal implements AutoCloseable {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // local path, last entry of the journal when it was opened
+    private final Map<String, Entry> previous;
+    // local path, problem of the files which failed in this run
+    private final Map<String, String> problems = new ConcurrentHashMap<>();
+    @Nullable private final BufferedWriter writer;
+
+    private Journal(Map<String, Entry> previous, @Nullable BufferedWriter writer) {
+        this.previous = previous;
+        this.writer = writer;
+    }
+
+    /**
+     * Opens the journal of a task for a new run. Without a file, nothing is kept beyond the run.
+     *
+     * @param key the settings of the task the recorded entries depend on
+     */
+    public static Journal open(@Nullable File file, String key) throws IOException {
+        if (file == null) return new Journal(new TreeMap<>(), null);
+
+        final Map<String, Entry> previous = entries(file, key);
+        Files.createDirectories(file.toPath().toAbsolutePath().getParent());
+        // The journal is compacted to the last entry per file, the entries of this run are appended after these
+        final BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        final Journal journal = new Journal(previous, writer);
+        journal.append(Entry.header(key));
+        for (Entry entry : previous.values()) {
+            journal.append(entry);
+        }
+        return journal;
+    }
+
+    /**
+     * Reads the last entry per file of a journal, without opening it for a run. Like {@link #open}, the entries are only
+     * read if the journal was written with the same key, otherwise the journal is empty.
+     */
+    public static Journal read(@Nullable File file, String key) {
+        if (file == null) return empty();
+        return new Journal(entries(file, key), null);
+    }
+
+    /**
+     * Returns a journal without entries, for runs which have no journal to go by.
+     */
+    public static Journal empty() {
+        return new Journal(new TreeMap<>(), null);
+    }
+
+    // The entries are only kept if the journal has the key
+    private static Map<String, Entry> entries(File file, String key) {
+        final Map<String, Entry> entries = new TreeMap<>();
+        if (!file.exists()) return entries;
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // Without a journal every file is processed again, which is always correct
+            return entries;
+        }
+        for (String line : lines) {
+            final Entry entry;
+            try {
+                entry = JSON.readValue(line, Entry.class);
+            } catch (IOException e) {
+                // The last line is cut off if the run was killed while writing it
+                continue;
+            }
+            if (entry.key != null) {
+                if (!key.equals(entry.key)) return new TreeMap<>();
+            } else if (entry.file != null) {
+                entries.put(entry.file, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns a key for the settings of a task: the jars it resolves against and any other values its output depends on.
+     * Like the class index, a jar counts as changed if its length or modification time changed.
+     */
+    public static String key(Collection<File> jars, Object... settings) {
+        final StringBuilder builder = new StringBuilder();
+        jars.stream().sorted().forEach(jar -> builder.append(jar.getAbsolutePath()).append(':').append(jar.length())
+            .append(':').append(jar.lastModified()).append('\n'));
+        for (Object setting : settings) {
+            builder.append(setting).append('\n');
+        }
+        return Hashing.sha1(builder.toString());
+    }
+
+    /**
+     * Returns whether the file was processed from the given input to the given output, so it can be skipped.
+     */
+    public boolean isDone(String file, @Nullable String input, @Nullable String output) {
+        final Entry entry = previous.get(file);
+        return entry != null && entry.problem == null
+            && Objects.equals(entry.input, input) && Objects.equals(entry.output, output);
+    }
+
+    /**
+     * Returns whether the file failed the last time it was processed.
+     */
+    public boolean hasFailed(String file) {
+        final Entry entry = previous.get(file);
+        return entry != null && entry.problem != null;
+    }
+
+    /**
+     * Returns the recorded hash of the output of a file, or {@code null} if the file is not done or has no output.
+     */
+    @Nullable
+    public String output(String file) {
+        final Entry entry = previous.get(file);
+        return entry == null || entry.problem != null ? null : entry.output;
+    }
+
+    public void done(String file, @Nullable String input, @Nullable String output) {
+        final Entry entry = new Entry();
+        entry.file = file;
+        entry.input = input;
+        entry.output = output;
+        append(entry);
+    }
+
+    public void failed(String file, @Nullable String input, String problem) {
+        problems.put(file, problem);
+        final Entry entry = new Entry();
+        entry.file = file;
+        entry.input = input;
+        entry.problem = problem;
+        append(entry);
+    }
+
+    /**
+     * Returns the problems of the files which failed in this run, ordered by file.
+     */
+    public List<String> problems() {
+        final List<String> messages = new ArrayList<>();
+        new TreeMap<>(problems).forEach((file, problem) -> messages.add(file + ": " + problem));
+        return messages;
+    }
+
+    /**
+     * Logs the problems of the files which failed in this run, and fails the task if there are any.
+     */
+    public void reportProblems(Consumer<String> error, String task) {
+        final List<String> messages = problems();
+        if (messages.isEmpty()) return;
+        messages.forEach(error);
+        throw new IllegalStateException(task + ": " + messages.size() + " file(s) failed"
+            + (writer == null ? "" : ", running the task again only processes these and the files which changed"));
+    }
+
+    private synchronized void append(Entry entry) {
+        if (writer == null) return;
+        try {
+            writer.write(JSON.writeValueAsString(entry));
+            writer.newLine();
+            // Flushed per entry, so everything done so far survives the build being killed
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write to the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) writer.close();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        // Key of the task settings, only set in the first line of the journal
+        public String key;
+        // file relative to the root the task processes
+        public String file;
+        // Hash of the input of the file
+        public String input;
+        // Hash of the output of the file, or null if it has none
+        public String output;
+        // Reason the file failed, or null if it is done
+        public String problem;
+
+        static Entry header(String key) {
+            final Entry entry = new Entry();
+            entry.key = key;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package fcw;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.resolution.SymbolResolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parsers and symbol solvers of the threads of a task, which parse the sources and resolve their types against
+ * the JDK and the given jars.
+ *
+ * <p>The symbol solvers of javaparser keep their caches in plain maps, so sharing one solver between threads is not
+ * safe. Instead, each thread gets its own parser, symbol solver and type solvers, and only the immutable
+ * {@link ClassIndexTypeSolver class index} is shared.</p>
+ */
+public class ParserThreads {
+    private final ClassIndexTypeSolver classIndex;
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(this::createParser);
+
+    public ParserThreads(Collection<File> jars, File classIndexDir) throws IOException {
+        this.classIndex = ClassIndexTypeSolver.of(jars, classIndexDir);
+    }
+
+    /**
+     * Returns the parser of the current thread, which attributes comments and resolves symbols.
+     */
+    public JavaParser parser() {
+        return parsers.get();
+    }
+
+    /**
+     * Returns the symbol resolver of the current thread, the one its parser sets on the parsed compilation units.
+     */
+    public SymbolResolver resolver() {
+        return parser().getParserConfiguration().getSymbolResolver()
+            .orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * Returns the class index of the jars, which may be queried from any thread.
+     */
+    public ClassIndexTypeSolver classIndex() {
+        return classIndex;
+    }
+
+    private JavaParser createParser() {
+        final ThreadTypeSolver typeSolver = new ThreadTypeSolver();
+        typeSolver.add(new ReflectionTypeSolver());
+        typeSolver.add(classIndex.fork());
+        return new JavaParser(new ParserConfiguration()
+            .setSymbolResolver(new JavaSymbolSolver(typeSolver))
+            .setAttributeComments(true));
+    }
+
+    /**
+     * The type solver of a thread, which remembers what it resolved. Resolving a simple name tries the name in several
+     * packages, and for the JDK each of these goes through the class loader, which locks the name.
+     */
+    private static class ThreadTypeSolver extends CombinedTypeSolver {
+        private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> solved = new HashMap<>();
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> reference = solved.get(name);
+            if (reference == null) {
+                reference = super.tryToSolveType(name);
+                solved.put(name, reference);
+            }
+            return reference;
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package fcw;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.Problem;
+import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.printer.DefaultPrettyPrinter;
 import com.github.javaparser.printer.Printer;
 import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
 import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption;
 import com.github.javaparser.resolution.SymbolResolver;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import com.github.javaparser.resolution.types.ResolvedType;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
 public class ParserUtils {
     public static final Printer PRINTER = new DefaultPrettyPrinter();
+    // Prints declarations only, used to compare the structure of two versions of a file
+    private static final Printer SIGNATURE_PRINTER = new DefaultPrettyPrinter(new DefaultPrinterConfiguration()
+        .removeOption(new DefaultConfigurationOption(ConfigOption.PRINT_COMMENTS))
+        .removeOption(new DefaultConfigurationOption(ConfigOption.PRINT_JAVADOC)));
 
     static {
         PRINTER.getConfiguration().addOption(new DefaultConfigurationOption(
@@ -23,6 +40,31 @@ public class ParserUtils {
         );
     }
 
+    public static CompilationUnit parse(JavaParser parser, Path file) throws IOException {
+        final ParseResult<CompilationUnit> result = parser.parse(file);
+        return result.getResult().orElseThrow(() -> new IllegalStateException(
+            "Compilation error for file " + file + ": "
+                + result.getProblems().stream().map(Problem::getVerboseMessage).collect(Collectors.joining("; "))));
+    }
+
+    public static void save(CompilationUnit cu, Path file) throws IOException {
+        Files.write(file, PRINTER.print(cu).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the structure of the given compilation unit as source text, that is the unit without any comments,
+     * initializer blocks, or method and constructor bodies. Two units with the same signature only differ in their
+     * comments or code, which do not change the members javadoc documents.
+     */
+    public static String toSignature(CompilationUnit cu) {
+        CompilationUnit copy = cu.clone();
+        copy.findAll(InitializerDeclaration.class).forEach(InitializerDeclaration::remove);
+        copy.findAll(MethodDeclaration.class).forEach(method -> method.getBody()
+            .ifPresent(body -> method.setBody(new BlockStmt())));
+        copy.findAll(ConstructorDeclaration.class).forEach(constructor -> constructor.setBody(new BlockStmt()));
+        return SIGNATURE_PRINTER.print(copy);
+    }
+
     public static String toFQN(ResolvedReferenceTypeDeclaration decl) {
         String pkg = decl.getPackageName();
         return (pkg.isEmpty() ? "" : pkg + ".") + decl.getClassName().replace('.', '$');
@@ -0,0 +1,144 @@
+package fcw;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.expr.ArrayCreationExpr;
+import com.github.javaparser.ast.expr.ArrayInitializerExpr;
+import com.github.javaparser.ast.expr.CastExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.NullLiteralExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SwitchExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.type.Type;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates signature-only stubs of source files, which javadoc renders the same as the full source files.
+ *
+ * <p>A stub keeps all declarations, annotations, javadoc comments and constant values, but no method bodies,
+ * initializer blocks or other comments. Private methods are dropped, unless a javadoc may link to them or they are
+ * part of the serialized form. Private fields and constructors are kept, as the serialized form lists the former
+ * and the latter stop javadoc from listing a default constructor.</p>
+ *
+ * <p>The initializers of fields which are no constants are dropped, except in interfaces and annotation types, whose
+ * fields need one: there they are replaced with a {@code null} of the type of the field.</p>
+ */
+public class Stubs {
+    // A member a javadoc may link to, or a member which is imported statically
+    private static final Pattern MEMBER_REFERENCE = Pattern.compile("#(\\w+)|import\\s+static\\s+[\\w.]+\\.(\\w+)\\s*;");
+    // Private methods which the serialized form documents
+    private static final Set<String> SERIALIZATION_METHODS = new HashSet<>(Arrays.asList(
+        "readObject", "readObjectNoData", "writeObject", "readResolve", "writeReplace"
+    ));
+
+    /**
+     * Collects the names of all members the given source text may link to, in the form of {@code #member}, or
+     * imports statically.
+     */
+    public static void collectReferences(String source, Set<String> references) {
+        Matcher matcher = MEMBER_REFERENCE.matcher(source);
+        while (matcher.find()) {
+            references.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        }
+    }
+
+    /**
+     * Returns a stub of the compilation unit, keeping the private members with the given referenced names.
+     */
+    public static CompilationUnit toStub(CompilationUnit cu, Set<String> references) {
+        final CompilationUnit stub = cu.clone();
+        stub.getAllContainedComments().stream()
+            .filter(comment -> !comment.isJavadocComment())
+            .forEach(Comment::remove);
+        stub.findAll(InitializerDeclaration.class).forEach(Node::remove);
+
+        for (MethodDeclaration method : stub.findAll(MethodDeclaration.class)) {
+            if (method.isPrivate() && !references.contains(method.getNameAsString())
+                && !SERIALIZATION_METHODS.contains(method.getNameAsString())) {
+                method.remove();
+            } else if (method.getBody().isPresent()) {
+                method.setBody(new BlockStmt());
+            }
+        }
+        stub.findAll(ConstructorDeclaration.class).forEach(constructor -> constructor.setBody(new BlockStmt()));
+
+        for (FieldDeclaration field : stub.findAll(FieldDeclaration.class)) {
+            if (isInterfaceField(field)) {
+                // The fields of interfaces and annotation types cannot go without an initializer
+                field.getVariables().forEach(variable -> variable.getInitializer()
+                    .filter(init -> !isConstantExpression(init))
+                    .ifPresent(init -> variable.setInitializer(placeholder(variable.getType()))));
+            } else if (!isConstantField(field)) {
+                field.getVariables().forEach(variable -> variable.removeInitializer());
+            }
+        }
+        return stub;
+    }
+
+    /**
+     * Returns a skeleton of the stub, which only keeps the methods and constructors which the site-wide pages of
+     * javadoc list apart from the index: those which are deprecated, part of the serialized form, or which a
+     * javadoc may link to.
+     */
+    public static CompilationUnit toSkeleton(CompilationUnit stub, Set<String> references) {
+        final CompilationUnit skeleton = stub.clone();
+        for (CallableDeclaration<?> callable : skeleton.findAll(CallableDeclaration.class)) {
+            String name = callable.getNameAsString();
+            boolean deprecated = callable.isAnnotationPresent(Deprecated.class)
+                || callable.getJavadocComment().map(comment -> comment.getContent().contains("@deprecated")).orElse(false);
+            if (!deprecated && !references.contains(name) && !SERIALIZATION_METHODS.contains(name)) {
+                callable.remove();
+            }
+        }
+        return skeleton;
+    }
+
+    // Whether javadoc may show the values of the field, mirroring which initializers javadoc itself keeps
+    private static boolean isConstantField(FieldDeclaration field) {
+        if (!field.isFinal()) return false;
+
+        return field.getVariables().stream()
+            .allMatch(variable -> variable.getInitializer().map(Stubs::isConstantExpression).orElse(false));
+    }
+
+    // Whether the field is implicitly static and final, as in interfaces and annotation types
+    private static boolean isInterfaceField(FieldDeclaration field) {
+        return field.getParentNode()
+            .map(parent -> parent instanceof AnnotationDeclaration
+                || parent instanceof ClassOrInterfaceDeclaration && ((ClassOrInterfaceDeclaration) parent).isInterface())
+            .orElse(false);
+    }
+
+    // An initializer of the type which is no constant, so javadoc shows no value for it: null, unboxed for primitives
+    private static Expression placeholder(Type type) {
+        if (!type.isPrimitiveType()) return new NullLiteralExpr();
+        return new CastExpr(type.asPrimitiveType().toBoxedType(), new NullLiteralExpr());
+    }
+
+    private static boolean isConstantExpression(Expression init) {
+        return !init.findFirst(Expression.class, expr -> expr instanceof ObjectCreationExpr
+            || expr instanceof ArrayCreationExpr
+            || expr instanceof ArrayInitializerExpr
+            || expr instanceof LambdaExpr
+            || expr instanceof MethodCallExpr
+            || expr instanceof MethodReferenceExpr
+            || expr instanceof SwitchExpr).isPresent();
+    }
+}
@@ -0,0 +1,304 @@
+package fcw;
+
+import fcw.tasks.ApplyDocs;
+import fcw.tasks.AssembleJavadocs;
+import fcw.tasks.CacheSources;
+import fcw.tasks.CopySources;
+import fcw.tasks.ExportDocStore;
+import fcw.tasks.FingerprintSources;
+import fcw.tasks.ImportDocStore;
+import fcw.tasks.ImportDocs;
+import fcw.tasks.MakeDocs;
+import fcw.tasks.QueryDocs;
+import fcw.tasks.RemoveComments;
+import fcw.tasks.ReportCoverage;
+import fcw.tasks.StubSources;
+import fcw.tasks.UpdateJavadocs;
+import fcw.tasks.ValidateDocs;
+import fcw.tasks.WatchDocs;
+import org.gradle.api.GradleException;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.ArtifactResolutionResult;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Delete;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.javadoc.Javadoc;
+import org.gradle.jvm.JvmLibrary;
+import org.gradle.language.base.artifact.SourcesArtifact;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Sets up the workspace project: a source set per entry of {@code SOURCES}, with the tasks which copy, document and
+ * check its sources, hooked into the aggregate tasks of the root project.
+ *
+ * <p>Nothing is resolved while configuring: the tasks are registered and only created when the build needs them,
+ * and the artifact a source set copies its sources from is looked up in the dependencies of the {@code minecraft}
+ * configuration when the copy runs.</p>
+ */
+public class WorkspacePlugin implements Plugin<Project> {
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(Project project) {
+        project.getPluginManager().apply(JavaPlugin.class);
+
+        final ExtraPropertiesExtension ext = project.getExtensions().getExtraProperties();
+        final Map<String, String> sources = (Map<String, String>) ext.get("SOURCES");
+        final File docsDir = (File) ext.get("DOCS_DIR");
+        final String docFileExtension = (String) ext.get("DOC_FILE_EXTENSION");
+        final int threads = (Integer) ext.get("WORKER_THREADS");
+        final File classIndexDir = (File) ext.get("CLASS_INDEX_DIR");
+        final boolean sparse = (Boolean) ext.get("SPARSE_WORKSPACE");
+
+        final Project root = project.getRootProject();
+        final TaskContainer rootTasks = root.getTasks();
+        final Configuration minecraft = project.getConfigurations().getByName("minecraft");
+        rootTasks.named("assembleJavadocs", Javadoc.class).configure(javadoc ->
+            javadoc.setClasspath(javadoc.getClasspath().plus(minecraft.getIncoming().getFiles())));
+        // The doc files are read once per build, by whichever task needs them first
+        final Provider<DocRepositoryService> docRepository = DocRepositoryService.register(project.getGradle());
+        rootTasks.named("updateJavadocs", UpdateJavadocs.class).configure(update ->
+            update.docRepository = DocRepositoryService.use(update, docRepository));
+        rootTasks.named("importDocStore", ImportDocStore.class).configure(importStore ->
+            importStore.docRepository = DocRepositoryService.use(importStore, docRepository));
+        rootTasks.named("exportDocStore", ExportDocStore.class).configure(export ->
+            export.docRepository = DocRepositoryService.use(export, docRepository));
+        rootTasks.named("importDocs", ImportDocs.class).configure(importDocs ->
+            importDocs.docRepository = DocRepositoryService.use(importDocs, docRepository));
+        rootTasks.named("queryDocs", QueryDocs.class).configure(query ->
+            query.docRepository = DocRepositoryService.use(query, docRepository));
+
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            final String name = entry.getKey();
+            final String pattern = entry.getValue();
+            final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+            final SourceSet sourceSet = project.getExtensions().getByType(SourceSetContainer.class).create(name);
+            final File srcDir = sourceSet.getJava().getSrcDirs().iterator().next();
+            final Configuration config = project.getConfigurations().getByName(sourceSet.getImplementationConfigurationName());
+            config.setCanBeResolved(true);
+            config.extendsFrom(minecraft);
+
+            final File stubsDir = project.file(project.getBuildDir() + "/stubs/" + name);
+            final File fingerprintsFile = project.file(project.getBuildDir() + "/fingerprints/" + name + ".json");
+            final File fingerprintsCache = project.file(project.getBuildDir() + "/fingerprints/" + name);
+            final File writeJournal = project.file(project.getBuildDir() + "/journals/write" + capitalized + "Docs.jsonl");
+            final File applyJournal = project.file(project.getBuildDir() + "/journals/apply" + capitalized + "Docs.jsonl");
+            final TaskContainer tasks = project.getTasks();
+
+            final TaskProvider<MakeDocs> writeDocsTask = tasks.register("write" + capitalized + "Docs", MakeDocs.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Write out doc files for source set '" + name + "'");
+                it.docsDir = docsDir;
+                it.classpath = config;
+                it.classIndexDir = classIndexDir;
+                it.sourcesDir = srcDir;
+                it.docFileExtension = docFileExtension;
+                it.threads = threads;
+                it.journalFile = writeJournal;
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+            dependOn(rootTasks, "writeDocs", writeDocsTask);
+
+            final TaskProvider<Delete> clearSourcesTask = tasks.register("clear" + capitalized + "Sources", Delete.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Clears source folder for source set '" + name + "'");
+                it.delete(srcDir);
+            });
+            dependOn(rootTasks, "clearSources", clearSourcesTask);
+
+            final TaskProvider<CopySources> copySourcesTask = tasks.register("copy" + capitalized + "Sources", CopySources.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Copy sources from the artifact matching '" + pattern + "' for source set '" + name + "'");
+                it.shouldRunAfter(clearSourcesTask);
+                it.destDir = srcDir;
+                it.sourcesJar = project.files(project.provider(() -> sourcesJar(project, minecraft, name, pattern)));
+                it.docsDir = sparse ? docsDir : null;
+                it.docFileExtension = docFileExtension;
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+            dependOn(rootTasks, "copySources", copySourcesTask);
+
+            final TaskProvider<FingerprintSources> fingerprintSourcesTask = tasks.register("fingerprint" + capitalized + "Sources", FingerprintSources.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Fingerprint source files for source set '" + name + "', restoring unchanged ones from the last run");
+                it.shouldRunAfter(copySourcesTask);
+                it.sourcesDir = srcDir;
+                it.docsDir = docsDir;
+                it.docFileExtension = docFileExtension;
+                it.fingerprintsFile = fingerprintsFile;
+                it.cacheDir = fingerprintsCache;
+                it.threads = threads;
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+
+            final TaskProvider<CacheSources> cacheSourcesTask = tasks.register("cache" + capitalized + "Sources", CacheSources.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Store processed source files for source set '" + name + "' for reuse by the next run");
+                it.sourcesDir = srcDir;
+                it.fingerprintsFile = fingerprintsFile;
+                it.cacheDir = fingerprintsCache;
+                it.threads = threads;
+                it.applyJournalFile = applyJournal;
+                it.classpath = config;
+                it.docFileExtension = docFileExtension;
+                it.pkgInfoTemplate = root.file("src/package-info-template.java");
+            });
+
+            final TaskProvider<RemoveComments> removeCommentsTask = tasks.register("remove" + capitalized + "Comments", RemoveComments.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Remove javadoc comments from source files for source set '" + name + "'");
+                it.shouldRunAfter(copySourcesTask);
+                it.dependsOn(fingerprintSourcesTask);
+                it.sourcesDir = srcDir;
+                it.classpath = config;
+                it.classIndexDir = classIndexDir;
+                it.threads = threads;
+                it.fingerprintsFile = fingerprintsFile;
+                it.applyJournalFile = applyJournal;
+                it.pkgInfoTemplate = root.file("src/package-info-template.java");
+                it.docsDir = docsDir;
+                it.docFileExtension = docFileExtension;
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+            dependOn(rootTasks, "removeComments", removeCommentsTask);
+
+            final TaskProvider<ApplyDocs> applyDocsTask = tasks.register("apply" + capitalized + "Docs", ApplyDocs.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Apply javadocs from doc files for source set '" + name + "'");
+                it.dependsOn(removeCommentsTask);
+                it.docsDir = docsDir;
+                it.classpath = config;
+                it.classIndexDir = classIndexDir;
+                it.sourcesDir = srcDir;
+                it.docFileExtension = docFileExtension;
+                it.pkgInfoTemplate = root.file("src/package-info-template.java");
+                it.threads = threads;
+                it.fingerprintsFile = fingerprintsFile;
+                it.journalFile = applyJournal;
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+                it.finalizedBy(cacheSourcesTask);
+            });
+            dependOn(rootTasks, "applyDocs", applyDocsTask);
+
+            final TaskProvider<StubSources> stubSourcesTask = tasks.register("stub" + capitalized + "Sources", StubSources.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Write signature-only stubs of the documented source files for source set '" + name + "'");
+                it.shouldRunAfter(applyDocsTask);
+                it.sourcesDir = srcDir;
+                it.docsDir = docsDir;
+                it.stubsDir = stubsDir;
+                it.docFileExtension = docFileExtension;
+                it.threads = threads;
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+            rootTasks.named("assembleJavadocs", Javadoc.class).configure(javadoc -> {
+                javadoc.dependsOn(stubSourcesTask);
+                javadoc.source(project.fileTree(stubsDir));
+            });
+            rootTasks.named("assembleJavadocsParallel", AssembleJavadocs.class).configure(assemble -> {
+                assemble.dependsOn(stubSourcesTask);
+                assemble.sourcesDirs.add(stubsDir);
+            });
+            rootTasks.named("updateJavadocs", UpdateJavadocs.class).configure(update -> update.sourcesDirs.add(srcDir));
+
+            final TaskProvider<ValidateDocs> validateDocsTask = tasks.register("validate" + capitalized + "Docs", ValidateDocs.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Validate doc files against the sources for source set '" + name + "', without changing the sources");
+                it.shouldRunAfter(copySourcesTask);
+                it.docsDir = docsDir;
+                it.classpath = config;
+                it.classIndexDir = classIndexDir;
+                it.sourcesDir = srcDir;
+                it.docFileExtension = docFileExtension;
+                it.threads = threads;
+                it.reportFile = project.file(project.getBuildDir() + "/reports/validate-docs/" + name + ".txt");
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+            dependOn(rootTasks, "validateDocs", validateDocsTask);
+
+            final TaskProvider<ReportCoverage> reportCoverageTask = tasks.register("report" + capitalized + "Coverage", ReportCoverage.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Report how much of the API of source set '" + name + "' the doc files document");
+                it.shouldRunAfter(copySourcesTask);
+                it.docsDir = docsDir;
+                it.classpath = config;
+                it.classIndexDir = classIndexDir;
+                it.sourcesDir = srcDir;
+                it.docFileExtension = docFileExtension;
+                it.threads = threads;
+                it.cacheFile = project.file(project.getBuildDir() + "/coverage/" + name + ".json");
+                it.jsonFile = project.file(project.getBuildDir() + "/reports/doc-coverage/" + name + ".json");
+                it.csvFile = project.file(project.getBuildDir() + "/reports/doc-coverage/" + name + ".csv");
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+            dependOn(rootTasks, "reportCoverage", reportCoverageTask);
+
+            tasks.register("watch" + capitalized + "Docs", WatchDocs.class, it -> {
+                it.setGroup("javadocs");
+                it.setDescription("Watch doc files for source set '" + name + "', serving a live preview of the javadocs");
+                it.docsDir = docsDir;
+                it.classpath = config;
+                it.classIndexDir = classIndexDir;
+                it.sourcesDir = srcDir;
+                it.docFileExtension = docFileExtension;
+                it.pkgInfoTemplate = root.file("src/package-info-template.java");
+                Object port = project.findProperty("previewPort");
+                it.port = port == null ? 8000 : Integer.parseInt(port.toString());
+                // The javadocs are generated before the watch starts, and only updated afterwards
+                final TaskProvider<UpdateJavadocs> updateJavadocs = rootTasks.named("updateJavadocs", UpdateJavadocs.class);
+                it.dependsOn(updateJavadocs);
+                it.javadoc = project.provider(() -> updateJavadocs.get().javadoc);
+                it.javadocSourcesDirs = project.provider(() -> updateJavadocs.get().sourcesDirs);
+                it.stateFile = project.provider(() -> updateJavadocs.get().stateFile);
+                it.extraDir = project.provider(() -> updateJavadocs.get().extraDir);
+                it.docRepository = DocRepositoryService.use(it, docRepository);
+            });
+        }
+    }
+
+    private static void dependOn(TaskContainer tasks, String name, TaskProvider<? extends Task> dependency) {
+        tasks.named(name).configure(task -> task.dependsOn(dependency));
+    }
+
+    // Looks up the single dependency of the minecraft configuration matching the pattern, and returns its sources jar
+    @SuppressWarnings({ "unchecked", "UnstableApiUsage" })
+    private static File sourcesJar(Project project, Configuration minecraft, String name, String pattern) {
+        final List<ComponentIdentifier> matchingDeps = minecraft.getIncoming().getResolutionResult().getAllDependencies().stream()
+            .filter(dependency -> dependency instanceof ResolvedDependencyResult)
+            .map(dependency -> ((ResolvedDependencyResult) dependency).getSelected().getId())
+            .filter(id -> id.getDisplayName().startsWith(pattern))
+            .distinct()
+            .collect(Collectors.toList());
+        if (matchingDeps.size() != 1) {
+            throw new GradleException("Source '" + name + " -> " + pattern + "' has to match exactly 1 dependency, matches: " + matchingDeps);
+        }
+        final ComponentIdentifier artifact = matchingDeps.get(0);
+        project.getLogger().lifecycle("- Source set '{}' for artifact '{}'", name, artifact);
+
+        ArtifactResolutionResult result = project.getDependencies().createArtifactResolutionQuery()
+            .forComponents(artifact)
+            .withArtifacts(JvmLibrary.class, SourcesArtifact.class)
+            .execute();
+
+        return result.getResolvedComponents().stream()
+            .flatMap(componentArtifactsResult -> componentArtifactsResult.getArtifacts(SourcesArtifact.class).stream())
+            .map(artifactResult -> ((ResolvedArtifactResult) artifactResult).getFile())
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No source artifact found for " + artifact));
+    }
+}
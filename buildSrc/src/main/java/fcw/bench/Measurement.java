@@ -0,0 +1,100 @@
+package fcw.bench;
+
+import fcw.FileScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Measures a stage of the doc pipeline: its wall time, the CPU time the process spent, the time the threads of the
+ * {@link FileScheduler}s spent waiting on locks, the peak heap usage and the source files processed per second. The
+ * results are appended to a CSV file, so runs can be compared.
+ */
+public class Measurement {
+    private static final String HEADER = "stage,classes,files,wall_ms,cpu_ms,lock_wait_ms,peak_heap_mb,files_per_s";
+
+    private final long startNanos;
+    private final long startCpuNanos;
+    private final long startLockNanos;
+    private long wallNanos = -1;
+
+    private Measurement() {
+        // Garbage of earlier stages should not count towards the peak of this one
+        System.gc();
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+        // Shows whether the threads contend, which the speedup over more threads does not tell on too few cores
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadContentionMonitoringSupported()) threads.setThreadContentionMonitoringEnabled(true);
+        this.startLockNanos = FileScheduler.lockNanos();
+        this.startCpuNanos = processCpuNanos();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static Measurement start() {
+        return new Measurement();
+    }
+
+    /**
+     * Ends the measurement of the stage and appends its results to the results file.
+     *
+     * @param classes the number of top-level classes of the corpus
+     * @param sourcesDir the sources the stage processed, which are counted after the measurement ended
+     * @return the results as a line to log
+     */
+    public String stop(String stage, int classes, File sourcesDir, File resultsFile) throws IOException {
+        wallNanos = System.nanoTime() - startNanos;
+        final long cpuNanos = processCpuNanos() - startCpuNanos;
+        final long lockNanos = FileScheduler.lockNanos() - startLockNanos;
+        // The pools peak at different times, so this is an upper bound of the peak of the heap
+        final long peakHeap = heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        final int files = FileScheduler.collect(sourcesDir.toPath(), path -> path.toString().endsWith(".java")).size();
+        final double filesPerSecond = files / Math.max(wallNanos / 1e9, 1e-9);
+        final String row = String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%.1f", stage, classes, files,
+            wallNanos / 1_000_000, cpuNanos < 0 ? -1 : cpuNanos / 1_000_000, lockNanos / 1_000_000, peakHeap >> 20,
+            filesPerSecond);
+
+        Files.createDirectories(resultsFile.toPath().getParent());
+        final List<String> lines = resultsFile.exists() ? Collections.singletonList(row) : Arrays.asList(HEADER, row);
+        Files.write(resultsFile.toPath(), lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        return String.format(Locale.ROOT, "%s on %d classes: %d files in %d ms wall, %s ms CPU, %d ms waiting on locks, %d MB peak heap, %.1f files/s",
+            stage, classes, files, wallNanos / 1_000_000, cpuNanos < 0 ? "?" : String.valueOf(cpuNanos / 1_000_000),
+            lockNanos / 1_000_000, peakHeap >> 20, filesPerSecond);
+    }
+
+    /**
+     * Returns the wall time of the stage in milliseconds, or -1 while it has not stopped.
+     */
+    public long getWallMillis() {
+        return wallNanos < 0 ? -1 : wallNanos / 1_000_000;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+            .collect(Collectors.toList());
+    }
+
+    // The CPU time of all threads of the process, or -1 if the JVM does not tell
+    private static long processCpuNanos() {
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+}
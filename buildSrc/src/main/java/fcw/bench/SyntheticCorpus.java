@@ -0,0 +1,652 @@
+package fcw.bench;
+
+import com.github.javaparser.ast.comments.JavadocComment;
+import com.github.javaparser.javadoc.Javadoc;
+import fcw.DocUtils;
+import fcw.info.DocInfo;
+import fcw.info.PackageInfo;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.Modifier;
+import javassist.NotFoundException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static fcw.info.DocInfo.ClassInfo;
+
+/**
+ * Generates a source tree shaped like the decompiled Minecraft sources, together with the doc files which
+ * {@code MakeDocs} would write for it, so the doc pipeline can be measured without a workspace.
+ *
+ * <p>The packages are laid out like {@code net.minecraft}. The top-level classes are plain and generic classes,
+ * abstract classes, interfaces and enums. They have nested classes, anonymous classes and enum constants with bodies,
+ * and their members take primitive, array, JDK and generic types and the other generated classes. Each element gets
+ * a javadoc with the probability of the coverage ratio. The generated sources compile, and the same seed always
+ * generates the same corpus.</p>
+ */
+public class SyntheticCorpus {
+    private static final String[] ROOTS = {
+        "net.minecraft.block", "net.minecraft.entity", "net.minecraft.item", "net.minecraft.world",
+        "net.minecraft.client.renderer", "net.minecraft.util.math", "net.minecraft.network", "net.minecraft.tileentity"
+    };
+    private static final String[] SUBPACKAGES = {
+        "ai", "biome", "chunk", "gen", "model", "monster", "passive", "play", "properties", "server", "storage", "texture"
+    };
+    private static final String[] PREFIXES = {
+        "Beacon", "Chunk", "Client", "Crafting", "Dirt", "Ender", "Fluid", "Furnace", "Light", "Nether", "Path", "Piston",
+        "Redstone", "Server", "Skeleton", "Spawn", "Stone", "Villager", "Zombie", "Biome", "Sound", "Loot", "Block"
+    };
+    private static final String[] NOUNS = {
+        "Block", "Builder", "Codec", "Container", "Entity", "Feature", "Goal", "Handler", "Item", "Manager", "Model",
+        "Packet", "Particle", "Property", "Provider", "Recipe", "Registry", "Renderer", "Screen", "Shape", "State",
+        "Structure", "Tag", "Texture", "Vector", "World"
+    };
+    private static final String[] NESTED_NAMES = {"Entry", "Node", "Type", "Context", "Result", "Key", "Mode", "Cache"};
+    private static final String[] VERBS = {
+        "get", "set", "is", "create", "update", "tick", "render", "read", "write", "apply", "find", "spawn", "remove",
+        "add", "compute", "handle"
+    };
+    private static final String[] PARTS = {
+        "Position", "State", "Value", "Count", "Entity", "Block", "Light", "Level", "Chunk", "Bounds", "Direction",
+        "Color", "Speed", "Owner", "Target", "Tick", "Biome", "Item"
+    };
+    private static final String[] PARAMETERS = {"pos", "state", "world", "count", "entity", "flag", "index", "amount", "name", "value"};
+    private static final String[] WORDS = {
+        "the", "block", "state", "of", "this", "entity", "is", "updated", "when", "world", "ticks", "returns", "a",
+        "new", "position", "for", "given", "chunk", "and", "light", "level", "which", "may", "be", "null", "if",
+        "not", "loaded", "server", "client", "side", "only", "called", "after", "render", "pass"
+    };
+
+    // A type usable in member signatures, with its source text, descriptor and default value
+    private static class Type {
+        final String source;
+        final String descriptor;
+        final String defaultValue;
+        final String imported;
+
+        Type(String source, String descriptor, String defaultValue, String imported) {
+            this.source = source;
+            this.descriptor = descriptor;
+            this.defaultValue = defaultValue;
+            this.imported = imported;
+        }
+    }
+
+    private static final Type[] BASIC_TYPES = {
+        new Type("int", "I", "0", null),
+        new Type("long", "J", "0L", null),
+        new Type("float", "F", "0.0F", null),
+        new Type("double", "D", "0.0D", null),
+        new Type("boolean", "Z", "false", null),
+        new Type("String", "Ljava/lang/String;", "null", null),
+        new Type("int[]", "[I", "null", null),
+        new Type("String[]", "[Ljava/lang/String;", "null", null),
+        new Type("List<String>", "Ljava/util/List;", "null", "java.util.List"),
+        new Type("Map<String, Integer>", "Ljava/util/Map;", "null", "java.util.Map")
+    };
+
+    // A generated top-level class which the following classes can refer to
+    private static class TopLevel {
+        final String pkg;
+        final String name;
+        final boolean generic;
+        final boolean isInterface;
+        final boolean isFinal;
+        // Names of the methods of the class and its supertypes, which subclasses must not reuse
+        final Set<String> methods;
+
+        TopLevel(String pkg, String name, boolean generic, boolean isInterface, boolean isFinal, Set<String> methods) {
+            this.pkg = pkg;
+            this.name = name;
+            this.generic = generic;
+            this.isInterface = isInterface;
+            this.isFinal = isFinal;
+            this.methods = methods;
+        }
+    }
+
+    // A named class of the corpus, as the jar declares it
+    private static class Declared {
+        final String binaryName;
+        final int modifiers;
+        final boolean generic;
+
+        Declared(String binaryName, int modifiers, boolean generic) {
+            this.binaryName = binaryName;
+            this.modifiers = modifiers;
+            this.generic = generic;
+        }
+    }
+
+    // The class being generated, with the state which depends on its scope
+    private static class Scope {
+        final String binaryName;
+        final String qualifiedName;
+        final String typeVariable;
+        final String typeVariableDescriptor;
+        final List<String> nested = new ArrayList<>();
+        // Methods are never overloaded or overridden, so their return types can't conflict
+        final Set<String> methods = new HashSet<>();
+        int anonymousClasses;
+
+        Scope(String binaryName, String qualifiedName, String typeVariable, String typeVariableDescriptor) {
+            this.binaryName = binaryName;
+            this.qualifiedName = qualifiedName;
+            this.typeVariable = typeVariable;
+            this.typeVariableDescriptor = typeVariableDescriptor;
+        }
+    }
+
+    private final Path sourcesRoot;
+    private final Path docsRoot;
+    private final double coverage;
+    private final Random random;
+    private final List<TopLevel> topLevels = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final List<Declared> declared = new ArrayList<>();
+    private int documented;
+
+    // Per file
+    private String pkg;
+    private Set<String> imports;
+    private DocInfo docInfo;
+
+    public SyntheticCorpus(Path sourcesRoot, Path docsRoot, double coverage, long seed) {
+        this.sourcesRoot = sourcesRoot;
+        this.docsRoot = docsRoot;
+        this.coverage = coverage;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates the given number of top-level classes, each in its own source file, and a package-info file per
+     * package.
+     *
+     * @return a summary of the generated corpus
+     */
+    public String generate(int topLevelClasses) throws IOException {
+        final List<String> packages = new ArrayList<>();
+        final int packageCount = Math.max(1, topLevelClasses / 40);
+        for (int i = 0; i < packageCount; i++) {
+            String root = ROOTS[i % ROOTS.length];
+            int sub = i / ROOTS.length - 1;
+            packages.add(sub < 0 ? root : root + "." + SUBPACKAGES[sub % SUBPACKAGES.length]
+                + (sub < SUBPACKAGES.length ? "" : String.valueOf(sub / SUBPACKAGES.length)));
+        }
+
+        for (String pkg : packages) {
+            writePackageInfo(pkg);
+        }
+        for (int i = 0; i < topLevelClasses; i++) {
+            writeClass(packages.get(random.nextInt(packages.size())));
+        }
+        return String.format("%d source files in %d packages, %d classes, %d documented elements",
+            topLevelClasses + packages.size(), packages.size(), declared.size(), documented);
+    }
+
+    /**
+     * Writes the named classes of the generated sources into a jar, which the corpus can be resolved from like the
+     * real dependencies. The classes have no members, as only the names and type parameters of the classes the
+     * sources refer to are resolved from the jar, and writing them takes seconds where compiling the sources takes
+     * minutes.
+     */
+    public void writeClasses(Path jar) throws IOException {
+        final ClassPool pool = new ClassPool(true);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Declared declared : this.declared) {
+                final CtClass cls = (declared.modifiers & Modifier.INTERFACE) != 0
+                    ? pool.makeInterface(declared.binaryName)
+                    : pool.makeClass(declared.binaryName);
+                cls.setModifiers(declared.modifiers);
+                if ((declared.modifiers & Modifier.ENUM) != 0) {
+                    cls.setSuperclass(pool.get("java.lang.Enum"));
+                    cls.setGenericSignature("Ljava/lang/Enum<L" + declared.binaryName.replace('.', '/') + ";>;");
+                } else if (declared.generic) {
+                    cls.setGenericSignature("<T:Ljava/lang/Object;>Ljava/lang/Object;");
+                }
+                out.putNextEntry(new JarEntry(declared.binaryName.replace('.', '/') + ".class"));
+                out.write(cls.toBytecode());
+                out.closeEntry();
+                cls.detach();
+            }
+        } catch (CannotCompileException | NotFoundException e) {
+            throw new IOException("Unable to write the classes of the corpus", e);
+        }
+    }
+
+    private void writePackageInfo(String pkg) throws IOException {
+        final StringBuilder source = new StringBuilder();
+        final Javadoc javadoc = javadoc(source, "", null, false);
+        source.append("package ").append(pkg).append(";\n");
+
+        final String local = pkg.replace('.', '/') + "/package-info";
+        write(sourcesRoot.resolve(local + ".java"), source.toString());
+        if (javadoc != null) {
+            Path docFile = docsRoot.resolve(local + ".json");
+            Files.createDirectories(docFile.getParent());
+            new PackageInfo(javadoc).write(docFile);
+        }
+    }
+
+    private void writeClass(String pkg) throws IOException {
+        this.pkg = pkg;
+        this.imports = new TreeSet<>();
+        this.docInfo = new DocInfo();
+
+        final String base = PREFIXES[random.nextInt(PREFIXES.length)] + NOUNS[random.nextInt(NOUNS.length)];
+        String name = base;
+        for (int suffix = 2; !names.add(name); suffix++) {
+            name = base + suffix;
+        }
+
+        final int kind = random.nextInt(100);
+        final StringBuilder body = new StringBuilder();
+        final String qualifiedName = pkg + "." + name;
+        if (kind < 10) {
+            Scope scope = writeInterface(body, "", name, qualifiedName, qualifiedName);
+            topLevels.add(new TopLevel(pkg, name, false, true, false, scope.methods));
+        } else if (kind < 18) {
+            Scope scope = writeEnum(body, "", name, qualifiedName, qualifiedName);
+            topLevels.add(new TopLevel(pkg, name, false, false, true, scope.methods));
+        } else {
+            boolean generic = kind >= 80;
+            Scope scope = writeClass(body, "", name, qualifiedName, qualifiedName, generic, kind < 25, true);
+            topLevels.add(new TopLevel(pkg, name, generic, false, false, scope.methods));
+        }
+
+        final StringBuilder source = new StringBuilder();
+        source.append("package ").append(pkg).append(";\n\n");
+        for (String imported : imports) {
+            source.append("import ").append(imported).append(";\n");
+        }
+        if (!imports.isEmpty()) source.append('\n');
+        source.append(body);
+
+        final String local = pkg.replace('.', '/') + "/" + name;
+        write(sourcesRoot.resolve(local + ".java"), source.toString());
+        if (!docInfo.isEmpty()) {
+            Path docFile = docsRoot.resolve(local + ".json");
+            Files.createDirectories(docFile.getParent());
+            docInfo.write(docFile);
+        }
+    }
+
+    private Scope writeClass(StringBuilder out, String indent, String name, String binaryName, String qualifiedName,
+                             boolean generic, boolean isAbstract, boolean topLevel) {
+        declared.add(new Declared(binaryName, Modifier.PUBLIC | (isAbstract ? Modifier.ABSTRACT : 0), generic));
+        final Scope scope = generic
+            ? new Scope(binaryName, qualifiedName, "T", random.nextBoolean() ? "Ljava/lang/Object;" : "Ljava/lang.Comparable;")
+            : new Scope(binaryName, qualifiedName, null, null);
+        classJavadoc(out, indent, scope);
+
+        out.append(indent).append(topLevel ? "public " : "public static ").append(isAbstract ? "abstract " : "")
+            .append("class ").append(name);
+        if (generic) {
+            out.append(scope.typeVariableDescriptor.equals("Ljava/lang/Object;") ? "<T>" : "<T extends Comparable<T>>");
+        }
+        final TopLevel superclass = pick(candidate -> !candidate.isInterface && !candidate.isFinal);
+        if (superclass != null && random.nextInt(3) == 0) {
+            out.append(" extends ").append(reference(superclass));
+            scope.methods.addAll(superclass.methods);
+        }
+        final TopLevel implemented = pick(candidate -> candidate.isInterface);
+        if (implemented != null && random.nextInt(3) == 0 && Collections.disjoint(implemented.methods, scope.methods)) {
+            out.append(" implements ").append(reference(implemented));
+            scope.methods.addAll(implemented.methods);
+        }
+        out.append(" {\n");
+
+        final String inner = indent + "    ";
+        if (topLevel) {
+            for (int i = random.nextInt(3); i > 0; i--) {
+                scope.nested.add(NESTED_NAMES[random.nextInt(NESTED_NAMES.length)] + (scope.nested.size() + 1));
+            }
+        }
+
+        final int fields = 1 + random.nextInt(8);
+        for (int i = 0; i < fields; i++) {
+            writeField(out, inner, scope, i);
+        }
+        writeConstructor(out, inner, scope, name, new ArrayList<>());
+        if (random.nextBoolean()) {
+            List<Type> parameters = new ArrayList<>();
+            for (int i = 1 + random.nextInt(3); i > 0; i--) parameters.add(type(scope, false));
+            writeConstructor(out, inner, scope, name, parameters);
+        }
+        final int methods = 2 + random.nextInt(random.nextInt(19) + 1);
+        for (int i = 0; i < methods; i++) {
+            writeMethod(out, inner, scope, false);
+        }
+
+        for (String nested : scope.nested) {
+            out.append('\n');
+            int nestedKind = random.nextInt(10);
+            if (nestedKind < 2) {
+                writeEnum(out, inner, nested, binaryName + "$" + nested, qualifiedName + "." + nested);
+            } else if (nestedKind < 3) {
+                writeInterface(out, inner, nested, binaryName + "$" + nested, qualifiedName + "." + nested);
+            } else {
+                writeClass(out, inner, nested, binaryName + "$" + nested, qualifiedName + "." + nested, false, false, false);
+            }
+        }
+        out.append(indent).append("}\n");
+        return scope;
+    }
+
+    private Scope writeInterface(StringBuilder out, String indent, String name, String binaryName, String qualifiedName) {
+        declared.add(new Declared(binaryName, Modifier.PUBLIC | Modifier.INTERFACE | Modifier.ABSTRACT, false));
+        final Scope scope = new Scope(binaryName, qualifiedName, null, null);
+        classJavadoc(out, indent, scope);
+        out.append(indent).append("public interface ").append(name).append(" {\n");
+
+        final String inner = indent + "    ";
+        for (int i = random.nextInt(3); i > 0; i--) {
+            final Type type = BASIC_TYPES[random.nextInt(5)];
+            final String field = "DEFAULT_" + PARTS[random.nextInt(PARTS.length)].toUpperCase() + "_" + i;
+            memberJavadoc(out, inner, scope, null, false).ifPresentField(field);
+            out.append(inner).append(type.source).append(' ').append(field).append(" = ").append(type.defaultValue).append(";\n");
+        }
+        for (int i = 1 + random.nextInt(6); i > 0; i--) {
+            writeMethod(out, inner, scope, true);
+        }
+        out.append(indent).append("}\n");
+        return scope;
+    }
+
+    private Scope writeEnum(StringBuilder out, String indent, String name, String binaryName, String qualifiedName) {
+        declared.add(new Declared(binaryName, Modifier.PUBLIC | Modifier.FINAL | Modifier.ENUM, false));
+        final Scope scope = new Scope(binaryName, qualifiedName, null, null);
+        scope.methods.add("getWeight");
+        classJavadoc(out, indent, scope);
+        out.append(indent).append("public enum ").append(name).append(" {\n");
+
+        final String inner = indent + "    ";
+        final int constants = 2 + random.nextInt(8);
+        for (int i = 0; i < constants; i++) {
+            final String constant = PARTS[random.nextInt(PARTS.length)].toUpperCase() + "_" + i;
+            memberJavadoc(out, inner, scope, null, false).ifPresentField(constant);
+            out.append(inner).append(constant).append('(').append(i).append(')');
+            if (random.nextInt(5) == 0) {
+                // An enum constant with a body is an anonymous class
+                final Scope anonymous = new Scope(binaryName + "$" + ++scope.anonymousClasses, null, null, null);
+                out.append(" {\n");
+                final String anonymousIndent = inner + "    ";
+                memberJavadoc(out, anonymousIndent, anonymous, null, true).ifPresentMethod("getWeight", "()I");
+                out.append(anonymousIndent).append("@Override\n")
+                    .append(anonymousIndent).append("public int getWeight() {\n")
+                    .append(anonymousIndent).append("    return ").append(i * 2).append(";\n")
+                    .append(anonymousIndent).append("}\n")
+                    .append(inner).append('}');
+            }
+            out.append(i == constants - 1 ? ";\n\n" : ",\n");
+        }
+
+        memberJavadoc(out, inner, scope, null, false).ifPresentField("weight");
+        out.append(inner).append("private final int weight;\n\n");
+        memberJavadoc(out, inner, scope, new String[]{"weight"}, false).ifPresentMethod(name, "(I)V");
+        out.append(inner).append(name).append("(int weight) {\n")
+            .append(inner).append("    this.weight = weight;\n")
+            .append(inner).append("}\n\n");
+        memberJavadoc(out, inner, scope, null, true).ifPresentMethod("getWeight", "()I");
+        out.append(inner).append("public int getWeight() {\n")
+            .append(inner).append("    return this.weight;\n")
+            .append(inner).append("}\n");
+        for (int i = random.nextInt(4); i > 0; i--) {
+            writeMethod(out, inner, scope, false);
+        }
+        out.append(indent).append("}\n");
+        return scope;
+    }
+
+    private void writeField(StringBuilder out, String indent, Scope scope, int index) {
+        final boolean constant = random.nextInt(4) == 0;
+        final Type type = constant ? BASIC_TYPES[random.nextInt(6)] : type(scope, false);
+        final String field = constant
+            ? PARTS[random.nextInt(PARTS.length)].toUpperCase() + "_" + index
+            : decapitalize(PARTS[random.nextInt(PARTS.length)]) + index;
+
+        memberJavadoc(out, indent, scope, null, false).ifPresentField(field);
+        out.append(indent).append(constant ? "public static final " : "private ").append(type.source).append(' ').append(field);
+        if (constant) {
+            out.append(" = ").append(type.source.equals("String") ? "\"" + field.toLowerCase() + "\"" : type.defaultValue);
+        }
+        out.append(";\n");
+    }
+
+    private void writeConstructor(StringBuilder out, String indent, Scope scope, String name, List<Type> parameters) {
+        final String[] names = parameterNames(parameters.size());
+        final StringBuilder descriptor = new StringBuilder("(");
+        parameters.forEach(type -> descriptor.append(type.descriptor));
+        descriptor.append(")V");
+
+        out.append('\n');
+        memberJavadoc(out, indent, scope, names, false).ifPresentMethod(name, descriptor.toString());
+        out.append(indent).append("public ").append(name).append('(');
+        appendParameters(out, parameters, names);
+        out.append(") {\n");
+        for (int i = 0; i < parameters.size(); i++) {
+            out.append(indent).append("    Object ").append(names[i]).append("Copy = ").append(names[i]).append(";\n");
+        }
+        out.append(indent).append("}\n");
+    }
+
+    private void writeMethod(StringBuilder out, String indent, Scope scope, boolean inInterface) {
+        String name;
+        do {
+            name = VERBS[random.nextInt(VERBS.length)] + PARTS[random.nextInt(PARTS.length)]
+                + (random.nextInt(4) == 0 ? PARTS[random.nextInt(PARTS.length)] : "");
+        } while (!scope.methods.add(name));
+        final Type returnType = type(scope, true);
+        final List<Type> parameters = new ArrayList<>();
+        for (int i = random.nextInt(4); i > 0; i--) parameters.add(type(scope, false));
+        final String[] names = parameterNames(parameters.size());
+
+        final StringBuilder descriptor = new StringBuilder("(");
+        parameters.forEach(type -> descriptor.append(type.descriptor));
+        descriptor.append(')').append(returnType.descriptor);
+
+        out.append('\n');
+        memberJavadoc(out, indent, scope, names, returnType.defaultValue != null).ifPresentMethod(name, descriptor.toString());
+        out.append(indent).append(inInterface ? "default " : "public ").append(returnType.source).append(' ')
+            .append(name).append('(');
+        appendParameters(out, parameters, names);
+        out.append(") {\n");
+        writeBody(out, indent + "    ", scope);
+        if (returnType.defaultValue != null) {
+            out.append(indent).append("    return ").append(returnType.defaultValue).append(";\n");
+        }
+        out.append(indent).append("}\n");
+    }
+
+    // Statements shaped like decompiled code, sometimes with an anonymous class
+    private void writeBody(StringBuilder out, String indent, Scope scope) {
+        final int statements = random.nextInt(12);
+        for (int i = 0; i < statements; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    out.append(indent).append("int i").append(i).append(" = ").append(random.nextInt(100)).append(";\n");
+                    break;
+                case 1:
+                    out.append(indent).append("for (int j").append(i).append(" = 0; j").append(i).append(" < ")
+                        .append(1 + random.nextInt(16)).append("; ++j").append(i).append(") {\n")
+                        .append(indent).append("    String s").append(i).append(" = String.valueOf(j").append(i).append(");\n")
+                        .append(indent).append("}\n");
+                    break;
+                case 2:
+                    out.append(indent).append("if (").append(random.nextInt(10)).append(" > ").append(random.nextInt(10))
+                        .append(") {\n").append(indent).append("    long l").append(i).append(" = System.nanoTime();\n")
+                        .append(indent).append("}\n");
+                    break;
+                default:
+                    if (scope.qualifiedName == null || random.nextInt(3) != 0) break;
+                    final Scope anonymous = new Scope(scope.binaryName + "$" + ++scope.anonymousClasses, null, null, null);
+                    final String inner = indent + "    ";
+                    out.append(indent).append("Runnable r").append(i).append(" = new Runnable() {\n");
+                    memberJavadoc(out, inner, anonymous, null, false).ifPresentMethod("run", "()V");
+                    out.append(inner).append("@Override\n")
+                        .append(inner).append("public void run() {\n")
+                        .append(inner).append("    int k = ").append(i).append(";\n")
+                        .append(inner).append("}\n")
+                        .append(indent).append("};\n")
+                        .append(indent).append('r').append(i).append(".run();\n");
+            }
+        }
+    }
+
+    private Type type(Scope scope, boolean allowVoid) {
+        final int choice = random.nextInt(100);
+        if (allowVoid && choice < 30) {
+            return new Type("void", "V", null, null);
+        } else if (choice < 40 && scope.typeVariable != null) {
+            return new Type(scope.typeVariable, scope.typeVariableDescriptor, "null", null);
+        } else if (choice < 50 && !scope.nested.isEmpty() && scope.qualifiedName != null) {
+            final String nested = scope.nested.get(random.nextInt(scope.nested.size()));
+            return new Type(nested, "L" + (scope.qualifiedName + "." + nested).replace('.', '/') + ";", "null", null);
+        } else if (choice < 70) {
+            final TopLevel other = pick(candidate -> true);
+            if (other != null) {
+                return new Type(reference(other), "L" + (other.pkg + "." + other.name).replace('.', '/') + ";", "null", null);
+            }
+        }
+        final Type type = BASIC_TYPES[random.nextInt(BASIC_TYPES.length)];
+        if (type.imported != null) imports.add(type.imported);
+        return type;
+    }
+
+    private interface Filter {
+        boolean test(TopLevel candidate);
+    }
+
+    private TopLevel pick(Filter filter) {
+        for (int attempt = 0; attempt < 4 && !topLevels.isEmpty(); attempt++) {
+            TopLevel candidate = topLevels.get(random.nextInt(topLevels.size()));
+            if (filter.test(candidate)) return candidate;
+        }
+        return null;
+    }
+
+    private String reference(TopLevel type) {
+        if (!type.pkg.equals(pkg)) imports.add(type.pkg + "." + type.name);
+        return type.generic ? type.name + "<String>" : type.name;
+    }
+
+    private String[] parameterNames(int count) {
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = PARAMETERS[random.nextInt(PARAMETERS.length)] + i;
+        }
+        return names;
+    }
+
+    private static void appendParameters(StringBuilder out, List<Type> parameters, String[] names) {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) out.append(", ");
+            out.append(parameters.get(i).source).append(' ').append(names[i]);
+        }
+    }
+
+    private void classJavadoc(StringBuilder out, String indent, Scope scope) {
+        final Javadoc javadoc = javadoc(out, indent, null, false);
+        if (javadoc != null) {
+            ClassInfo classInfo = new ClassInfo(scope.binaryName);
+            classInfo.javadoc = javadoc;
+            docInfo.classes.put(classInfo.name, classInfo);
+        }
+    }
+
+    // The javadoc of a member, which is added to the doc file once the member is known
+    private class MemberJavadoc {
+        final Scope scope;
+        final Javadoc javadoc;
+
+        MemberJavadoc(Scope scope, Javadoc javadoc) {
+            this.scope = scope;
+            this.javadoc = javadoc;
+        }
+
+        void ifPresentField(String name) {
+            if (javadoc == null) return;
+            ClassInfo.FieldInfo fieldInfo = new ClassInfo.FieldInfo(name);
+            fieldInfo.javadoc = javadoc;
+            docInfo.classes.computeIfAbsent(scope.binaryName, ClassInfo::new).fields.put(name, fieldInfo);
+        }
+
+        void ifPresentMethod(String name, String descriptor) {
+            if (javadoc == null) return;
+            ClassInfo.MethodInfo methodInfo = new ClassInfo.MethodInfo(name, descriptor);
+            methodInfo.javadoc = javadoc;
+            docInfo.classes.computeIfAbsent(scope.binaryName, ClassInfo::new).methods.put(name + " " + descriptor, methodInfo);
+        }
+    }
+
+    private MemberJavadoc memberJavadoc(StringBuilder out, String indent, Scope scope, String[] parameters, boolean returns) {
+        return new MemberJavadoc(scope, javadoc(out, indent, parameters, returns));
+    }
+
+    /**
+     * Writes a javadoc comment with the probability of the coverage ratio, and returns it as {@code MakeDocs} would
+     * read it.
+     */
+    private Javadoc javadoc(StringBuilder out, String indent, String[] parameters, boolean returns) {
+        if (random.nextDouble() >= coverage) return null;
+
+        final StringBuilder content = new StringBuilder("\n");
+        content.append(indent).append(" * ").append(sentence()).append(' ').append(sentence()).append('\n');
+        if (random.nextInt(3) == 0) {
+            content.append(indent).append(" * <p>\n");
+            content.append(indent).append(" * ").append(sentence()).append(" See {@link String#valueOf(Object)}.\n");
+        }
+        if (parameters != null && parameters.length > 0 || returns) {
+            content.append(indent).append(" *\n");
+        }
+        if (parameters != null) {
+            for (String parameter : parameters) {
+                content.append(indent).append(" * @param ").append(parameter).append(' ').append(phrase()).append('\n');
+            }
+        }
+        if (returns) {
+            content.append(indent).append(" * @return ").append(phrase()).append('\n');
+        }
+        content.append(indent).append(' ');
+
+        out.append(indent).append("/**").append(content).append("*/\n");
+        documented++;
+        return DocUtils.parseComment(new JavadocComment(content.toString()));
+    }
+
+    private String sentence() {
+        final String phrase = phrase();
+        return Character.toUpperCase(phrase.charAt(0)) + phrase.substring(1) + ".";
+    }
+
+    private String phrase() {
+        final StringBuilder phrase = new StringBuilder();
+        for (int i = 3 + random.nextInt(8); i > 0; i--) {
+            if (phrase.length() > 0) phrase.append(' ');
+            phrase.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return phrase.toString();
+    }
+
+    private static String decapitalize(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package fcw.engine;
+
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.resolution.SymbolResolver;
+import fcw.DocUtils;
+import fcw.IdentifyingVisitor;
+import fcw.info.DocInfo;
+
+import static fcw.info.DocInfo.ClassInfo;
+
+class ApplyDocsVisitor extends IdentifyingVisitor {
+    private final DocInfo doc;
+    boolean modified = false;
+
+    public ApplyDocsVisitor(SymbolResolver resolver, DocInfo doc) {
+        super(resolver);
+        this.doc = doc;
+    }
+
+    @Override
+    protected void visitClass(TypeDeclaration<?> n, VisitContext ctx) {
+        ClassInfo clsInfo = doc.classes.get(ctx.getQualifiedName());
+        if (clsInfo != null && clsInfo.javadoc != null) {
+            n.setComment(DocUtils.createComment(clsInfo.javadoc));
+            modified = true;
+        }
+    }
+
+    @Override
+    protected void visitEnumConstant(EnumConstantDeclaration n, VisitContext ctx) {
+        ClassInfo clsInfo = doc.classes.get(ctx.getQualifiedName());
+        if (clsInfo != null) {
+            ClassInfo.FieldInfo fieldInfo = clsInfo.fields.get(n.resolve().getName());
+            if (fieldInfo != null && fieldInfo.javadoc != null) {
+                n.setComment(DocUtils.createComment(fieldInfo.javadoc));
+                modified = true;
+            }
+        }
+    }
+
+    @Override
+    protected void visitField(FieldDeclaration n, VisitContext ctx) {
+        ClassInfo clsInfo = doc.classes.get(ctx.getQualifiedName());
+        if (clsInfo != null) {
+            ClassInfo.FieldInfo fieldInfo = clsInfo.fields.get(n.resolve().getName());
+            if (fieldInfo != null && fieldInfo.javadoc != null) {
+                n.setComment(DocUtils.createComment(fieldInfo.javadoc));
+                modified = true;
+            }
+        }
+    }
+
+    @Override
+    protected void visitMethod(MethodDeclaration n, String descriptor, VisitContext ctx) {
+        ClassInfo clsInfo = doc.classes.get(ctx.getQualifiedName());
+        if (clsInfo != null) {
+            String key = n.getNameAsString() + " " + descriptor;
+            ClassInfo.MethodInfo methodInfo = clsInfo.methods.get(key);
+            if (methodInfo != null && methodInfo.javadoc != null) {
+                n.setComment(DocUtils.createComment(methodInfo.javadoc));
+                modified = true;
+            }
+        }
+    }
+
+    @Override
+    protected void visitConstructor(ConstructorDeclaration n, String descriptor, VisitContext ctx) {
+        ClassInfo clsInfo = doc.classes.get(ctx.getQualifiedName());
+        if (clsInfo != null) {
+            String key = n.getNameAsString() + " " + descriptor;
+            ClassInfo.MethodInfo methodInfo = clsInfo.methods.get(key);
+            if (methodInfo != null && methodInfo.javadoc != null) {
+                n.setComment(DocUtils.createComment(methodInfo.javadoc));
+                modified = true;
+            }
+        }
+    }
+
+    @Override
+    protected void visitAnnotationMember(AnnotationMemberDeclaration n, String descriptor, VisitContext ctx) {
+        ClassInfo clsInfo = doc.classes.get(ctx.getQualifiedName());
+        if (clsInfo != null) {
+            String key = n.getNameAsString() + " " + descriptor;
+            ClassInfo.MethodInfo methodInfo = clsInfo.methods.get(key);
+            if (methodInfo != null && methodInfo.javadoc != null) {
+                n.setComment(DocUtils.createComment(methodInfo.javadoc));
+                modified = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package fcw.engine;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.resolution.SymbolResolver;
+import fcw.DocUtils;
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+import fcw.Hashing;
+import fcw.Journal;
+import fcw.ParserThreads;
+import fcw.ParserUtils;
+import fcw.info.DocInfo;
+import fcw.info.DocRepository;
+import fcw.info.InfoHolder;
+import fcw.info.PackageInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * The processing of the doc pipeline, without Gradle: extracting the javadocs of source files into doc files, removing
+ * the javadocs from source files, and applying doc files to source files. The tasks run it for a whole source set,
+ * {@link Main} runs it from the command line, also for single files.
+ *
+ * <p>Each operation takes the source files to process, or {@code null} for all source files under the source root.
+ * Files which fail are reported at the end of the operation, which then throws an {@link IllegalStateException}. The
+ * doc files are read through a {@link DocRepository}, which the tasks of a build share.</p>
+ */
+public class DocEngine {
+    private final Collection<File> classpath;
+    private final File classIndexDir;
+    private final int threads;
+    private Consumer<String> lifecycle = System.out::println;
+    private Consumer<String> error = System.err::println;
+    // Only made once an operation needs symbols resolved, as loading the class index takes a while
+    @Nullable private ParserThreads parsers;
+
+    public DocEngine(Collection<File> classpath, File classIndexDir, int threads) {
+        this.classpath = classpath;
+        this.classIndexDir = classIndexDir;
+        this.threads = threads;
+    }
+
+    /**
+     * Sets where progress and problems are reported, standard output and error by default.
+     */
+    public DocEngine log(Consumer<String> lifecycle, Consumer<String> error) {
+        this.lifecycle = lifecycle;
+        this.error = error;
+        return this;
+    }
+
+    private synchronized ParserThreads parsers() throws IOException {
+        if (parsers == null) parsers = new ParserThreads(classpath, classIndexDir);
+        return parsers;
+    }
+
+    /**
+     * Writes the javadocs of the source files into doc files. When run for all source files, doc files which no source
+     * file produced are deleted. Source files without javadoc comments are not parsed, see {@link JavadocPrefilter}.
+     *
+     * @param journalFile the journal which lets a failed or interrupted run resume, or {@code null} for none
+     */
+    public void makeDocs(String name, Path sourcesRoot, DocRepository docRepository, @Nullable List<Path> sources,
+                         @Nullable File journalFile) throws IOException {
+        final Path root = sourcesRoot.toAbsolutePath();
+        final Path docs = docRepository.root();
+        Files.createDirectories(docs);
+
+        // Doc files of this run, all others are left over from sources which are gone or no longer documented
+        final Set<Path> current = ConcurrentHashMap.newKeySet();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger undocumented = new AtomicInteger();
+
+        try (Journal journal = Journal.open(journalFile, Journal.key(classpath, docRepository.docFileExtension()));
+             FileScheduler scheduler = new FileScheduler(lifecycle, name, threads)) {
+            scheduler.run(sources != null ? absolute(root, sources) : javaFiles(root), absolute -> {
+                final Path local = root.relativize(absolute);
+                final String localPath = Fingerprints.localPath(root, absolute);
+                final Path docsFile = docRepository.docFile(local);
+                final ByteBuffer content = JavadocPrefilter.read(absolute);
+                final String input = Hashing.sha1(content);
+                final String existing = docRepository.hash(docsFile);
+                if (existing != null) current.add(docsFile);
+
+                if (journal.isDone(localPath, input, existing)) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                try {
+                    final boolean documented = local.getFileName().toString().equals("package-info.java")
+                        || JavadocPrefilter.mayHaveJavadoc(content);
+                    if (!documented) undocumented.incrementAndGet();
+                    final InfoHolder info = documented
+                        ? makeDocs(local, ParserUtils.parse(parsers().parser(), absolute), parsers().resolver())
+                        : null;
+                    if (info != null && !info.isEmpty()) {
+                        Files.deleteIfExists(docsFile);
+                        Files.createDirectories(docsFile.getParent());
+                        info.write(docsFile);
+                        docRepository.changed(docsFile);
+                        current.add(docsFile);
+                        journal.done(localPath, input, docRepository.hash(docsFile));
+                    } else {
+                        current.remove(docsFile);
+                        if (sources != null) Files.deleteIfExists(docsFile);
+                        journal.done(localPath, input, null);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // The doc file of the last run is kept until the source file can be processed again
+                    journal.failed(localPath, input, e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+            });
+
+            if (sources == null) {
+                for (Path docsFile : docRepository.files().values()) {
+                    if (!current.contains(docsFile)) Files.delete(docsFile);
+                }
+                try (Stream<Path> walk = Files.walk(docs)) {
+                    //noinspection ResultOfMethodCallIgnored
+                    walk.sorted(Comparator.reverseOrder())
+                        .filter(path -> !path.equals(docs) && Files.isDirectory(path))
+                        .map(Path::toFile)
+                        .forEach(File::delete);
+                }
+            }
+            docRepository.changed();
+            if (skipped.get() > 0) {
+                lifecycle.accept(name + ": " + skipped.get() + " source files were unchanged since they were last processed");
+            }
+            if (undocumented.get() > 0) {
+                lifecycle.accept(name + ": " + undocumented.get() + " source files without javadoc comments were not parsed");
+            }
+            journal.reportProblems(error, name);
+        }
+    }
+
+    @Nullable
+    private static InfoHolder makeDocs(Path local, CompilationUnit cu, SymbolResolver resolver) {
+        if (local.toString().endsWith("package-info.java")) {
+            return Optional.ofNullable(
+                cu.getComment().filter(Comment::isJavadocComment)
+                    .orElseGet(() -> cu.getPackageDeclaration()
+                        .flatMap(PackageDeclaration::getComment)
+                        .filter(Comment::isJavadocComment)
+                        .orElse(null)
+                    ))
+                .map(Comment::asJavadocComment)
+                .map(DocUtils::parseComment)
+                .map(PackageInfo::new)
+                .orElse(null);
+        }
+
+        final DocInfo info = new DocInfo();
+        if (cu.getAllComments().isEmpty()) return info;
+
+        final MakeDocsVisitor visitor = new MakeDocsVisitor(resolver, info);
+        visitor.visit(cu);
+        return info;
+    }
+
+    /**
+     * Removes the javadocs from the source files, except for those which are reused or already have their docs
+     * applied.
+     *
+     * @param reused the source files relative to the source root which are skipped, see {@link Fingerprints#reused}
+     * @param docRepository the doc files the {@code applied} journal refers to, or {@code null} to not skip applied
+     *                      files
+     * @param applied the journal of {@link #applyDocs}, whose files which are done with their current doc file are
+     *                skipped
+     */
+    public void removeComments(String name, Path sourcesRoot, @Nullable List<Path> sources, boolean skipPackageInfo,
+                               Set<String> reused, @Nullable DocRepository docRepository, Journal applied) throws IOException {
+        final Path root = sourcesRoot.toAbsolutePath();
+        // Comments are only removed, so no symbols have to be resolved
+        final ParserConfiguration parserConfiguration = new ParserConfiguration().setAttributeComments(true);
+        final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(parserConfiguration));
+        final List<Path> files = (sources != null ? absolute(root, sources) : javaFiles(root)).stream()
+            .filter(path -> !reused.contains(Fingerprints.localPath(root, path)))
+            .collect(Collectors.toList());
+
+        try (FileScheduler scheduler = new FileScheduler(lifecycle, name, threads)) {
+            scheduler.run(files, absolutePath -> {
+                if (skipPackageInfo && absolutePath.getFileName().toString().endsWith("package-info.java")) {
+                    return;
+                }
+                if (docRepository != null && isApplied(applied, root, docRepository, absolutePath)) {
+                    return;
+                }
+                final ParseResult<CompilationUnit> result = parsers.get().parse(absolutePath);
+                if (result.getResult().isPresent()) {
+                    final CompilationUnit compilationUnit = result.getResult().get();
+                    compilationUnit.getAllComments().stream()
+                        .filter(Comment::isJavadocComment)
+                        .forEach(Comment::remove);
+                    ParserUtils.save(compilationUnit, absolutePath);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the key of the journal of {@link #applyDocs} for the given settings, which the journal is read with
+     * elsewhere, see {@link Journal#read}.
+     */
+    public static String applyJournalKey(Collection<File> classpath, String docFileExtension, @Nullable File pkgInfoTemplate)
+        throws IOException {
+        final String template = pkgInfoTemplate != null && pkgInfoTemplate.exists() ? Hashing.sha1(pkgInfoTemplate.toPath()) : null;
+        return Journal.key(classpath, docFileExtension, template);
+    }
+
+    private static boolean isApplied(Journal applied, Path sourcesRoot, DocRepository docRepository, Path file)
+        throws IOException {
+        final String local = Fingerprints.localPath(sourcesRoot, file);
+        if (applied.output(local) == null) return false;
+        final String docHash = docRepository.hash(docRepository.docFile(sourcesRoot.relativize(file)));
+        return docHash != null && applied.isDone(local, docHash, Hashing.sha1(file));
+    }
+
+    /**
+     * Applies the doc files to their source files, creating the package-info files of documented packages which have
+     * none from the template.
+     *
+     * @param sources the source files to apply the docs of, or {@code null} for all doc files
+     * @param reused the source files relative to the source root which are skipped, see {@link Fingerprints#reused}
+     * @param journalFile the journal which lets a failed or interrupted run resume, or {@code null} for none
+     */
+    public void applyDocs(String name, Path sourcesRoot, DocRepository docRepository, @Nullable File pkgInfoTemplate,
+                          @Nullable List<Path> sources, Set<String> reused, @Nullable File journalFile) throws IOException {
+        final Path root = sourcesRoot.toAbsolutePath();
+        final Path docs = docRepository.root();
+        if (!Files.exists(docs)) return;
+
+        final ParserThreads parsers = parsers();
+        final List<Path> docFiles = (sources != null
+            ? absolute(root, sources).stream().map(source -> docRepository.docFile(root.relativize(source))).filter(Files::exists).collect(Collectors.toList())
+            : docRepository.files().values()).stream()
+            .filter(path -> !reused.contains(docRepository.localSource(path)))
+            .collect(Collectors.toList());
+        // The work is in parsing and resolving the source file, so that is what the files are weighed by
+        final ToLongFunction<Path> sourceSize = docFile -> {
+            Path sourceFile = root.resolve(docRepository.localSource(docFile));
+            return Files.exists(sourceFile) ? FileScheduler.size(sourceFile) : 0;
+        };
+
+        final AtomicInteger skipped = new AtomicInteger();
+
+        try (Journal journal = Journal.open(journalFile, applyJournalKey(classpath, docRepository.docFileExtension(), pkgInfoTemplate));
+             FileScheduler scheduler = new FileScheduler(lifecycle, name, threads)) {
+            scheduler.run(docFiles, sourceSize, absolutePath -> {
+                Path localPath = docs.relativize(absolutePath);
+                String local = docRepository.localSource(absolutePath);
+                Path sourceFile = root.resolve(local);
+                String input = docRepository.hash(absolutePath);
+                if (journal.isDone(local, input, Files.exists(sourceFile) ? Hashing.sha1(sourceFile) : null)) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+
+                try {
+                    String pkg = localPath.getParent() != null
+                        ? localPath.getParent().toString().replace(File.separatorChar, '.')
+                        : "";
+                    String fileName = sourceFile.getFileName().toString();
+
+                    createPackageInfo(pkgInfoTemplate, pkg, sourceFile);
+                    if (Files.notExists(sourceFile)) {
+                        // Left over from a class which is gone, which validateDocs reports
+                        error.accept("No source file for docs file " + absolutePath);
+                        return;
+                    }
+
+                    final CompilationUnit cu = ParserUtils.parse(parsers.parser(), sourceFile);
+                    if (applyDocs(cu, fileName, docRepository, absolutePath, parsers.resolver())) {
+                        ParserUtils.save(cu, sourceFile);
+                    }
+                    journal.done(local, input, Hashing.sha1(sourceFile));
+                } catch (IOException | RuntimeException e) {
+                    journal.failed(local, input, e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+            });
+
+            if (skipped.get() > 0) {
+                lifecycle.accept(name + ": " + skipped.get() + " source files already had their docs applied");
+            }
+            journal.reportProblems(error, name);
+        }
+    }
+
+    private static List<Path> javaFiles(Path root) throws IOException {
+        return FileScheduler.collect(root, path -> path.toString().endsWith(".java"));
+    }
+
+    // Source files may be given relative to the source root
+    private static List<Path> absolute(Path root, List<Path> sources) {
+        return sources.stream()
+            .map(source -> root.resolve(source).toAbsolutePath().normalize())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates the package-info file for a documented package from the template, if the package has none.
+     */
+    public static void createPackageInfo(@Nullable File pkgInfoTemplate, String pkg, Path file) throws IOException {
+        if (pkgInfoTemplate != null
+            && !pkg.isEmpty()
+            && file.getFileName().toString().endsWith("package-info.java")
+            && Files.notExists(file)
+            && pkgInfoTemplate.exists()) {
+            try (Stream<String> lines = Files.lines(pkgInfoTemplate.toPath())) {
+                Files.write(file, lines.map(str -> str.replace("${pkg}", pkg))
+                    .collect(Collectors.toList()));
+            }
+        }
+    }
+
+    /**
+     * Applies the docs from the doc file to the compilation unit of the matching source file, returning whether the
+     * unit was modified.
+     */
+    public static boolean applyDocs(CompilationUnit cu, String fileName, DocRepository docRepository, Path docFile,
+                                    SymbolResolver resolver) {
+        if (fileName.endsWith("package-info.java")) {
+            PackageInfo info = docRepository.packageInfo(docFile);
+            if (!info.isEmpty()) {
+                cu.setComment(DocUtils.createComment(info.javadoc));
+                return true;
+            }
+
+            return false;
+        }
+
+        DocInfo doc = docRepository.docInfo(docFile);
+        if (doc.isEmpty()) return false;
+
+        ApplyDocsVisitor visitor = new ApplyDocsVisitor(resolver, doc);
+        visitor.visit(cu);
+
+        return visitor.modified;
+    }
+}
@@ -0,0 +1,113 @@
+package fcw.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tells without parsing whether a source file may have a javadoc comment, so {@link DocEngine#makeDocs} only parses
+ * the files which do. The bytes of the file are scanned for a {@code /**} which starts a comment, skipping string,
+ * text block and character literals and other comments. The characters this looks for are all ASCII, which are single
+ * bytes in UTF-8 and never part of other characters.
+ *
+ * <p>The scan errs on the side of parsing: a unicode escape anywhere, which could hide any of the characters it looks
+ * for, counts as a javadoc comment.</p>
+ */
+class JavadocPrefilter {
+    // Larger files are mapped instead of read into the heap
+    private static final long MAP_THRESHOLD = 64 * 1024;
+    // Windows keeps a mapped file locked until the mapping is garbage collected, which would fail a task which
+    // deletes or rewrites the sources later in the same build
+    private static final boolean CAN_MAP = File.separatorChar == '/';
+
+    static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (CAN_MAP && size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    static boolean mayHaveJavadoc(ByteBuffer content) {
+        final int end = content.limit();
+        int i = content.position();
+        while (i < end) {
+            final byte b = content.get(i);
+            if (b == '\\' && i + 1 < end && content.get(i + 1) == 'u') return true;
+            if (b == '/' && i + 1 < end && content.get(i + 1) == '/') {
+                i = skipLine(content, i + 2);
+                if (i < 0) return true;
+            } else if (b == '/' && i + 1 < end && content.get(i + 1) == '*') {
+                // Javadoc comments start with /** but /**/ is an empty block comment
+                if (i + 2 < end && content.get(i + 2) == '*' && !(i + 3 < end && content.get(i + 3) == '/')) return true;
+                i = skipComment(content, i + 2);
+                if (i < 0) return true;
+            } else if (b == '"' && i + 2 < end && content.get(i + 1) == '"' && content.get(i + 2) == '"') {
+                i = skipTextBlock(content, i + 3);
+                if (i < 0) return true;
+            } else if (b == '"' || b == '\'') {
+                i = skipLiteral(content, i + 1, b);
+                if (i < 0) return true;
+            } else {
+                i++;
+            }
+        }
+        return false;
+    }
+
+    // Each skip returns the index after what it skipped, or -1 if it found a unicode escape
+
+    private static int skipLine(ByteBuffer content, int i) {
+        for (; i < content.limit(); i++) {
+            final byte b = content.get(i);
+            if (b == '\n' || b == '\r') return i + 1;
+            if (isUnicodeEscape(content, i)) return -1;
+        }
+        return i;
+    }
+
+    private static int skipComment(ByteBuffer content, int i) {
+        for (; i < content.limit(); i++) {
+            if (content.get(i) == '*' && i + 1 < content.limit() && content.get(i + 1) == '/') return i + 2;
+            if (isUnicodeEscape(content, i)) return -1;
+        }
+        return i;
+    }
+
+    private static int skipLiteral(ByteBuffer content, int i, byte quote) {
+        for (; i < content.limit(); i++) {
+            final byte b = content.get(i);
+            if (isUnicodeEscape(content, i)) return -1;
+            if (b == '\\') {
+                i++;
+            } else if (b == quote || b == '\n' || b == '\r') {
+                // A literal cannot span lines, so an unterminated one ends at the line
+                return i + 1;
+            }
+        }
+        return i;
+    }
+
+    private static int skipTextBlock(ByteBuffer content, int i) {
+        for (; i < content.limit(); i++) {
+            final byte b = content.get(i);
+            if (isUnicodeEscape(content, i)) return -1;
+            if (b == '\\') {
+                i++;
+            } else if (b == '"' && i + 2 < content.limit() && content.get(i + 1) == '"' && content.get(i + 2) == '"') {
+                return i + 3;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isUnicodeEscape(ByteBuffer content, int i) {
+        return content.get(i) == '\\' && i + 1 < content.limit() && content.get(i + 1) == 'u';
+    }
+}
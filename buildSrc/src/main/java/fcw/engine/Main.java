@@ -0,0 +1,142 @@
+package fcw.engine;
+
+import fcw.Journal;
+import fcw.info.DocRepository;
+import fcw.site.PageMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the {@link DocEngine} from the command line, without Gradle, and merges the page maps of the javadoc sites, see
+ * {@link PageMap}. See {@link #USAGE}, the {@code installCli} task installs it together with a launcher script.
+ */
+public class Main {
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: fcw <make|strip|apply> --sources <dir> [options] [source files...]",
+        "       fcw merge-page-maps --sites <dir>",
+        "",
+        "  make   writes the javadocs of the source files into doc files",
+        "  strip  removes the javadocs from the source files",
+        "  apply  applies the doc files to the source files",
+        "",
+        "Source files may be given relative to the source root, all source files are processed if there are none.",
+        "",
+        "merge-page-maps merges the page maps of the javadoc sites of all versions, published next to each other in",
+        "the sites directory, into the page map their version pickers share.",
+        "",
+        "Options:",
+        "  --sources <dir>       root of the source files",
+        "  --docs <dir>          root of the doc files, needed for make and apply",
+        "  --classpath <jars>    jars the source files are resolved against, separated by '" + File.pathSeparator + "'",
+        "  --class-index <dir>   directory of the class indexes of the jars, by default the one of the Gradle build",
+        "  --extension <ext>     extension of the doc files, .json by default",
+        "  --template <file>     template of the package-info files apply creates for documented packages",
+        "  --journal <file>      journal which lets a run which failed resume where it stopped",
+        "  --threads <count>     number of threads, the number of processors by default",
+        "  --sites <dir>         directory with the javadoc site of each version, for merge-page-maps");
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (UncheckedIOException e) {
+            // Thrown for a single file, the cause tells what went wrong unless the message is made from it already
+            final String cause = e.getCause().toString();
+            System.err.println(e.getMessage().equals(cause) ? cause : e.getMessage() + ": " + cause);
+            System.exit(1);
+        }
+    }
+
+    static int run(String[] args) throws IOException {
+        if (args.length == 0 || args[0].equals("--help")) {
+            System.out.println(USAGE);
+            return 0;
+        }
+        final String command = args[0];
+        Path sourcesRoot = null;
+        Path docsRoot = null;
+        List<File> classpath = Collections.emptyList();
+        File classIndexDir = defaultClassIndexDir();
+        String extension = ".json";
+        File template = null;
+        File journal = null;
+        Path sitesDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        final List<Path> sources = new ArrayList<>();
+
+        for (int i = 1; i < args.length; i++) {
+            final String arg = args[i];
+            if (!arg.startsWith("--")) {
+                sources.add(Paths.get(arg));
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing the value of " + arg);
+            final String value = args[++i];
+            switch (arg) {
+                case "--sources": sourcesRoot = Paths.get(value); break;
+                case "--docs": docsRoot = Paths.get(value); break;
+                case "--classpath":
+                    classpath = Arrays.stream(value.split(File.pathSeparator))
+                        .filter(jar -> !jar.isEmpty())
+                        .map(File::new)
+                        .collect(Collectors.toList());
+                    break;
+                case "--class-index": classIndexDir = new File(value); break;
+                case "--extension": extension = value; break;
+                case "--template": template = new File(value); break;
+                case "--journal": journal = new File(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--sites": sitesDir = Paths.get(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (command.equals("merge-page-maps")) {
+            if (sitesDir == null) throw new IllegalArgumentException("Missing --sites");
+            final List<String> versions = PageMap.merge(sitesDir);
+            System.out.println("Merged the page maps of versions " + versions + " into " + sitesDir.resolve(PageMap.DIR));
+            return 0;
+        }
+        if (sourcesRoot == null) throw new IllegalArgumentException("Missing --sources");
+        if (docsRoot == null && !command.equals("strip")) throw new IllegalArgumentException("Missing --docs");
+
+        final DocEngine engine = new DocEngine(classpath, classIndexDir, threads);
+        final DocRepository docs = docsRoot != null ? new DocRepository(docsRoot, extension) : null;
+        final List<Path> only = sources.isEmpty() ? null : sources;
+        switch (command) {
+            case "make":
+                engine.makeDocs(command, sourcesRoot, docs, only, journal);
+                break;
+            case "strip":
+                engine.removeComments(command, sourcesRoot, only, true, Collections.emptySet(), null, Journal.empty());
+                break;
+            case "apply":
+                engine.applyDocs(command, sourcesRoot, docs, template, only, Collections.emptySet(), journal);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+        return 0;
+    }
+
+    // The class indexes are shared with the Gradle build, see CLASS_INDEX_DIR
+    private static File defaultClassIndexDir() {
+        final String gradleHome = System.getenv("GRADLE_USER_HOME");
+        final File home = gradleHome != null ? new File(gradleHome) : new File(System.getProperty("user.home"), ".gradle");
+        return new File(home, "fcw/class-index");
+    }
+}
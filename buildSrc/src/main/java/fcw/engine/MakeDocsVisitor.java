@@ -0,0 +1,92 @@
+package fcw.engine;
+
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.resolution.SymbolResolver;
+import fcw.DocUtils;
+import fcw.IdentifyingVisitor;
+import fcw.info.DocInfo;
+
+import static fcw.info.DocInfo.ClassInfo;
+
+class MakeDocsVisitor extends IdentifyingVisitor {
+    private final DocInfo doc;
+
+    public MakeDocsVisitor(SymbolResolver resolver, DocInfo doc) {
+        super(resolver);
+        this.doc = doc;
+    }
+
+    @Override
+    protected void visitClass(TypeDeclaration<?> n, VisitContext ctx) {
+        n.getJavadocComment().map(DocUtils::parseComment).ifPresent(javadoc -> {
+            ClassInfo classInfo = new ClassInfo(ctx.getQualifiedName());
+            classInfo.javadoc = javadoc;
+            doc.classes.put(classInfo.name, classInfo);
+        });
+    }
+
+    @Override
+    protected void visitEnumConstant(EnumConstantDeclaration n, VisitContext ctx) {
+        n.getJavadocComment().map(DocUtils::parseComment).ifPresent(javadoc -> {
+            ClassInfo info = doc.classes.computeIfAbsent(ctx.getQualifiedName(), ClassInfo::new);
+
+            ClassInfo.FieldInfo fieldInfo = new ClassInfo.FieldInfo(n.resolve().getName());
+            fieldInfo.javadoc = javadoc;
+
+            info.fields.put(fieldInfo.name, fieldInfo);
+        });
+    }
+
+    @Override
+    protected void visitField(FieldDeclaration n, VisitContext ctx) {
+        n.getJavadocComment().map(DocUtils::parseComment).ifPresent(javadoc -> {
+            ClassInfo info = doc.classes.computeIfAbsent(ctx.getQualifiedName(), ClassInfo::new);
+
+            ClassInfo.FieldInfo fieldInfo = new ClassInfo.FieldInfo(n.resolve().getName());
+            fieldInfo.javadoc = javadoc;
+
+            info.fields.put(fieldInfo.name, fieldInfo);
+        });
+    }
+
+    @Override
+    protected void visitMethod(MethodDeclaration n, String descriptor, VisitContext ctx) {
+        n.getJavadocComment().map(DocUtils::parseComment).ifPresent(javadoc -> {
+            ClassInfo info = doc.classes.computeIfAbsent(ctx.getQualifiedName(), ClassInfo::new);
+
+            ClassInfo.MethodInfo methodInfo = new ClassInfo.MethodInfo(n.getNameAsString(), descriptor);
+            methodInfo.javadoc = javadoc;
+
+            info.methods.put(methodInfo.name + " " + methodInfo.descriptor, methodInfo);
+        });
+    }
+
+    @Override
+    protected void visitConstructor(ConstructorDeclaration n, String descriptor, VisitContext ctx) {
+        n.getJavadocComment().map(DocUtils::parseComment).ifPresent(javadoc -> {
+            ClassInfo info = doc.classes.computeIfAbsent(ctx.getQualifiedName(), ClassInfo::new);
+
+            ClassInfo.MethodInfo methodInfo = new ClassInfo.MethodInfo(n.getNameAsString(), descriptor);
+            methodInfo.javadoc = javadoc;
+
+            info.methods.put(methodInfo.name + " " + methodInfo.descriptor, methodInfo);
+        });
+    }
+
+    @Override
+    protected void visitAnnotationMember(AnnotationMemberDeclaration n, String descriptor, VisitContext ctx) {
+        n.getJavadocComment().map(DocUtils::parseComment).ifPresent(javadoc -> {
+            ClassInfo info = doc.classes.computeIfAbsent(ctx.getQualifiedName(), ClassInfo::new);
+
+            ClassInfo.MethodInfo methodInfo = new ClassInfo.MethodInfo(n.getNameAsString(), descriptor);
+            methodInfo.javadoc = javadoc;
+
+            info.methods.put(methodInfo.name + " " + methodInfo.descriptor, methodInfo);
+        });
+    }
+}
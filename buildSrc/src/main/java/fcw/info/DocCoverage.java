@@ -0,0 +1,410 @@
+package fcw.info;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithModifiers;
+import com.github.javaparser.resolution.SymbolResolver;
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+import fcw.Hashing;
+import fcw.IdentifyingVisitor;
+import fcw.Journal;
+import fcw.ParserThreads;
+import fcw.ParserUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+import static fcw.info.DocInfo.ClassInfo;
+
+/**
+ * How much of the API of the sources of a source set the doc files document, counted per package and class as the
+ * documented and undocumented classes, fields and methods. Constructors and annotation members count as methods, enum
+ * constants as fields.
+ *
+ * <p>The API is what javadoc shows by default: the public and protected classes and their public and protected
+ * members, without anything declared in anonymous or local classes. An element is documented if the doc file of its
+ * source file has a javadoc for it, under the key {@link IdentifyingVisitor} identifies it by.</p>
+ *
+ * <p>The declarations of every source file and the documented keys of every doc file are kept between runs, and only
+ * read again for the files whose content changed. Changing doc files therefore only reads these doc files again,
+ * without parsing any source. Changing the classpath identifies all source files again, as the descriptors of the
+ * methods depend on it.</p>
+ */
+public class DocCoverage {
+    public static final String[] KINDS = {"classes", "fields", "methods"};
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int CLASSES = 0;
+    private static final int FIELDS = 1;
+    private static final int METHODS = 2;
+
+    public static DocCoverage read(File file) {
+        if (!file.exists()) return new DocCoverage();
+        try {
+            return JSON.readValue(file, DocCoverage.class);
+        } catch (IOException e) {
+            // The coverage can always be counted again from the files
+            return new DocCoverage();
+        }
+    }
+
+    // Key of the classpath the methods of the sources were identified against, see Journal#key
+    public String key;
+    // source file relative to the source root, API of the source file
+    public Map<String, SourceEntry> sources = new TreeMap<>();
+    // doc file relative to the docs root, documented keys of the doc file
+    public Map<String, DocEntry> docs = new TreeMap<>();
+
+    public void write(File file) {
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            JSON.writeValue(file, this);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write doc coverage at " + file, e);
+        }
+    }
+
+    /**
+     * Updates the coverage for all source files under the source root and their doc files which were added, changed
+     * or removed since the last update. Source files which fail to parse are left out and added to the problems.
+     *
+     * @return the number of source files which were identified again
+     */
+    public int update(Path sourcesRoot, DocRepository docRepository, Collection<File> classpath, File classIndexDir,
+                      FileScheduler scheduler, Queue<String> problems) throws IOException {
+        final String currentKey = Journal.key(classpath);
+        final Map<String, SourceEntry> previous = currentKey.equals(key) ? sources : new TreeMap<>();
+        final Map<String, SourceEntry> updatedSources = new ConcurrentHashMap<>();
+        final Map<String, DocEntry> updatedDocs = new ConcurrentHashMap<>();
+        final Set<String> identified = ConcurrentHashMap.newKeySet();
+        // The class index is only loaded once a source file has to be parsed
+        final LazyParsers parsers = new LazyParsers(classpath, classIndexDir);
+
+        scheduler.run(FileScheduler.collect(sourcesRoot, path -> path.toString().endsWith(".java")), file -> {
+            final String local = Fingerprints.localPath(sourcesRoot, file);
+            if (local.endsWith("package-info.java")) return;
+            final SourceEntry old = previous.get(local);
+            SourceEntry entry = new SourceEntry();
+            entry.size = Files.size(file);
+            entry.modified = Files.getLastModifiedTime(file).toMillis();
+            if (old != null && old.size == entry.size && old.modified == entry.modified) {
+                entry = old;
+            } else {
+                entry.hash = Hashing.sha1(file);
+                if (old != null && entry.hash.equals(old.hash)) {
+                    entry.pkg = old.pkg;
+                    entry.classes = old.classes;
+                } else {
+                    try {
+                        final CompilationUnit cu = ParserUtils.parse(parsers.get().parser(), file);
+                        entry.pkg = cu.getPackageDeclaration().map(pkg -> pkg.getNameAsString()).orElse("");
+                        new ApiVisitor(parsers.get().resolver(), entry.classes).visit(cu);
+                        identified.add(local);
+                    } catch (RuntimeException e) {
+                        problems.add(local + ": unable to identify the declarations: " + e.getMessage());
+                        return;
+                    }
+                }
+            }
+            updatedSources.put(local, entry);
+
+            final Path docFile = docRepository.docFile(sourcesRoot.relativize(file));
+            final String hash = docRepository.hash(docFile);
+            if (hash == null) return;
+            final String docLocal = Fingerprints.localPath(docRepository.root(), docFile);
+            final DocEntry oldDoc = docs.get(docLocal);
+            if (oldDoc != null && hash.equals(oldDoc.hash)) {
+                updatedDocs.put(docLocal, oldDoc);
+            } else {
+                updatedDocs.put(docLocal, DocEntry.of(hash, docRepository.docInfo(docFile)));
+            }
+        });
+
+        key = currentKey;
+        sources = new TreeMap<>(updatedSources);
+        docs = new TreeMap<>(updatedDocs);
+        return identified.size();
+    }
+
+    /**
+     * Counts the documented and undocumented elements per class, for the coverage as of the last update.
+     *
+     * @return the counts per class, by class and by package
+     */
+    public Map<String, Map<String, Counts>> counts(DocRepository docRepository) {
+        final Map<String, Map<String, Counts>> packages = new TreeMap<>();
+        sources.forEach((local, source) -> {
+            final DocEntry doc = docs.get(Fingerprints.localPath(docRepository.root(), docRepository.docFile(Paths.get(local))));
+            final Set<String> documented = doc == null ? new HashSet<>() : new HashSet<>(doc.documented);
+            final Map<String, Counts> classes = packages.computeIfAbsent(source.pkg, pkg -> new TreeMap<>());
+            source.classes.forEach((name, api) -> {
+                final Counts counts = new Counts();
+                counts.count(CLASSES, documented.contains(name));
+                api.fields.forEach(field -> counts.count(FIELDS, documented.contains(name + "#" + field)));
+                api.methods.forEach(method -> counts.count(METHODS, documented.contains(name + "#" + method)));
+                classes.put(name, counts);
+            });
+        });
+        packages.values().removeIf(Map::isEmpty);
+        return packages;
+    }
+
+    /**
+     * Writes the counts as JSON: the totals, then every package with its totals and the counts of its classes.
+     *
+     * <pre>
+     * {"documented": {"classes": 1, "fields": 0, "methods": 2}, "undocumented": {...}, "packages": [
+     *     {"name": "net.minecraft.block", "documented": {...}, "undocumented": {...}, "classes": [
+     *         {"name": "net.minecraft.block.Block", "documented": {...}, "undocumented": {...}}, ...]}, ...]}
+     * </pre>
+     */
+    public static void writeJson(Map<String, Map<String, Counts>> packages, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (JsonGenerator gen = JSON.getFactory().createGenerator(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartObject();
+            writeCounts(gen, total(packages.values()));
+            gen.writeArrayFieldStart("packages");
+            for (Map.Entry<String, Map<String, Counts>> pkg : packages.entrySet()) {
+                gen.writeStartObject();
+                gen.writeStringField("name", pkg.getKey());
+                writeCounts(gen, total(pkg.getValue()));
+                gen.writeArrayFieldStart("classes");
+                for (Map.Entry<String, Counts> cls : pkg.getValue().entrySet()) {
+                    gen.writeStartObject();
+                    gen.writeStringField("name", cls.getKey());
+                    writeCounts(gen, cls.getValue());
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes the counts as CSV, with a row per package followed by a row per class of the package. The rows of the
+     * packages have an empty class column.
+     */
+    public static void writeCsv(Map<String, Map<String, Counts>> packages, Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("package,class");
+            for (String kind : KINDS) {
+                writer.write("," + kind + "_documented," + kind + "_undocumented");
+            }
+            writer.newLine();
+            for (Map.Entry<String, Map<String, Counts>> pkg : packages.entrySet()) {
+                writeRow(writer, pkg.getKey(), "", total(pkg.getValue()));
+                for (Map.Entry<String, Counts> cls : pkg.getValue().entrySet()) {
+                    writeRow(writer, pkg.getKey(), cls.getKey(), cls.getValue());
+                }
+            }
+        }
+    }
+
+    public static Counts total(Collection<Map<String, Counts>> packages) {
+        final Counts total = new Counts();
+        packages.forEach(classes -> total.add(total(classes)));
+        return total;
+    }
+
+    private static Counts total(Map<String, Counts> classes) {
+        final Counts total = new Counts();
+        classes.values().forEach(total::add);
+        return total;
+    }
+
+    private static void writeCounts(JsonGenerator gen, Counts counts) throws IOException {
+        gen.writeObjectFieldStart("documented");
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            gen.writeNumberField(KINDS[kind], counts.documented[kind]);
+        }
+        gen.writeEndObject();
+        gen.writeObjectFieldStart("undocumented");
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            gen.writeNumberField(KINDS[kind], counts.undocumented[kind]);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeRow(BufferedWriter writer, String pkg, String cls, Counts counts) throws IOException {
+        writer.write(pkg + "," + cls);
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            writer.write("," + counts.documented[kind] + "," + counts.undocumented[kind]);
+        }
+        writer.newLine();
+    }
+
+    public static class SourceEntry {
+        public long size;
+        public long modified;
+        public String hash;
+        public String pkg;
+        // class fqn, API of the class
+        public Map<String, ClassApi> classes = new TreeMap<>();
+    }
+
+    public static class ClassApi {
+        public List<String> fields = new ArrayList<>();
+        // "<method name> <method descriptor>"
+        public List<String> methods = new ArrayList<>();
+    }
+
+    public static class DocEntry {
+        public String hash;
+        // "<class>", "<class>#<field>" and "<class>#<method name> <method descriptor>" of the elements with a javadoc
+        public List<String> documented = new ArrayList<>();
+
+        static DocEntry of(String hash, DocInfo doc) {
+            final DocEntry entry = new DocEntry();
+            entry.hash = hash;
+            for (ClassInfo classInfo : doc.classes.values()) {
+                if (classInfo.javadoc != null) entry.documented.add(classInfo.name);
+                classInfo.fields.values().stream()
+                    .filter(fieldInfo -> fieldInfo.javadoc != null)
+                    .forEach(fieldInfo -> entry.documented.add(classInfo.name + "#" + fieldInfo.name));
+                classInfo.methods.values().stream()
+                    .filter(methodInfo -> methodInfo.javadoc != null)
+                    .forEach(methodInfo -> entry.documented.add(classInfo.name + "#" + methodInfo.name + " " + methodInfo.descriptor));
+            }
+            return entry;
+        }
+    }
+
+    public static class Counts {
+        public final int[] documented = new int[KINDS.length];
+        public final int[] undocumented = new int[KINDS.length];
+
+        void count(int kind, boolean isDocumented) {
+            if (isDocumented) {
+                documented[kind]++;
+            } else {
+                undocumented[kind]++;
+            }
+        }
+
+        void add(Counts other) {
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                documented[kind] += other.documented[kind];
+                undocumented[kind] += other.undocumented[kind];
+            }
+        }
+    }
+
+    private static class LazyParsers {
+        private final Collection<File> classpath;
+        private final File classIndexDir;
+        @Nullable private ParserThreads parsers;
+
+        LazyParsers(Collection<File> classpath, File classIndexDir) {
+            this.classpath = classpath;
+            this.classIndexDir = classIndexDir;
+        }
+
+        synchronized ParserThreads get() throws IOException {
+            if (parsers == null) parsers = new ParserThreads(classpath, classIndexDir);
+            return parsers;
+        }
+    }
+
+    // Collects the API of a source file, keyed the way the doc files key the elements
+    private static class ApiVisitor extends IdentifyingVisitor {
+        private final Map<String, ClassApi> classes;
+
+        ApiVisitor(SymbolResolver resolver, Map<String, ClassApi> classes) {
+            super(resolver);
+            this.classes = classes;
+        }
+
+        // Anonymous classes are never visited as classes, so their members are left out too
+        @Override
+        protected boolean needsDescriptor(String name, VisitContext ctx) {
+            return classes.containsKey(ctx.getQualifiedName());
+        }
+
+        @Override
+        protected void visitClass(TypeDeclaration<?> n, VisitContext ctx) {
+            final Node parent = n.getParentNode().orElse(null);
+            final boolean api = parent instanceof CompilationUnit
+                || parent instanceof TypeDeclaration && classes.containsKey(outerClass(ctx.getQualifiedName()));
+            if (api && isVisible(n)) classes.put(ctx.getQualifiedName(), new ClassApi());
+        }
+
+        @Override
+        protected void visitEnumConstant(EnumConstantDeclaration n, VisitContext ctx) {
+            final ClassApi api = classes.get(ctx.getQualifiedName());
+            if (api != null) api.fields.add(n.getNameAsString());
+        }
+
+        @Override
+        protected void visitField(FieldDeclaration n, VisitContext ctx) {
+            final ClassApi api = classes.get(ctx.getQualifiedName());
+            if (api != null && isVisible(n)) n.getVariables().forEach(variable -> api.fields.add(variable.getNameAsString()));
+        }
+
+        @Override
+        protected void visitMethod(MethodDeclaration n, String descriptor, VisitContext ctx) {
+            addMethod(n, n.getNameAsString() + " " + descriptor, ctx);
+        }
+
+        @Override
+        protected void visitConstructor(ConstructorDeclaration n, String descriptor, VisitContext ctx) {
+            addMethod(n, n.getNameAsString() + " " + descriptor, ctx);
+        }
+
+        @Override
+        protected void visitAnnotationMember(AnnotationMemberDeclaration n, String descriptor, VisitContext ctx) {
+            addMethod(n, n.getNameAsString() + " " + descriptor, ctx);
+        }
+
+        private void addMethod(Node n, String key, VisitContext ctx) {
+            final ClassApi api = classes.get(ctx.getQualifiedName());
+            if (api != null && isVisible(n)) api.methods.add(key);
+        }
+
+        private static String outerClass(String name) {
+            return name.substring(0, name.lastIndexOf('$'));
+        }
+
+        // Members of interfaces and annotations are public without a modifier
+        private static boolean isVisible(Node n) {
+            final NodeWithModifiers<?> modifiers = (NodeWithModifiers<?>) n;
+            if (modifiers.hasModifier(Modifier.Keyword.PUBLIC) || modifiers.hasModifier(Modifier.Keyword.PROTECTED)) {
+                return true;
+            }
+            if (modifiers.hasModifier(Modifier.Keyword.PRIVATE)) return false;
+            final Node parent = n.getParentNode().orElse(null);
+            return parent instanceof AnnotationDeclaration
+                || parent instanceof ClassOrInterfaceDeclaration && ((ClassOrInterfaceDeclaration) parent).isInterface();
+        }
+    }
+}
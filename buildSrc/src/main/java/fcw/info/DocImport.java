@@ -0,0 +1,268 @@
+package fcw.info;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.javaparser.javadoc.Javadoc;
+import fcw.FileScheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import static fcw.info.DocInfo.ClassInfo;
+import static fcw.info.InfoUtils.*;
+
+/**
+ * Imports a batch of javadocs of single classes and members into the doc files, writing each affected doc file once.
+ *
+ * <p>A batch is a JSONL file with an entry per line. An entry names a class by its fqn as in the doc files, and
+ * optionally a field, or a method with its descriptor, and has a javadoc in the form of the doc files:</p>
+ * <pre>
+ * {"class": "net.minecraft.block.Block", "javadoc": {"description": ["..."]}}
+ * {"class": "net.minecraft.block.Block", "field": "LOGGER", "javadoc": {...}}
+ * {"class": "net.minecraft.block.Block", "method": "getShape", "descriptor": "(I)V", "javadoc": {...}}
+ * </pre>
+ *
+ * <p>An entry adds a javadoc to an element which has none. To replace a javadoc, the entry has to give the javadoc it
+ * replaces as {@code base}. Entries which would overwrite a javadoc they were not written against conflict and are
+ * not imported: entries without a base for an element which is documented differently, entries whose base is no longer
+ * the javadoc of their element, and entries for an element which the batch documents differently elsewhere. Entries
+ * which only repeat the current javadoc change nothing.</p>
+ */
+public class DocImport {
+    // doc file, element of the doc file, entries for the element in the order of the batch
+    private final Map<Path, Map<String, List<Entry>>> files = new TreeMap<>();
+    private final List<String> invalid = new ArrayList<>();
+    private int entries;
+
+    /**
+     * Reads a batch, grouping its entries by the doc file they go to. Invalid lines are collected, see
+     * {@link #invalid()}.
+     */
+    public static DocImport read(Path batch, DocRepository docRepository) throws IOException {
+        final DocImport docImport = new DocImport();
+        final String name = batch.getFileName().toString();
+        try (BufferedReader reader = Files.newBufferedReader(batch, StandardCharsets.UTF_8)) {
+            int number = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                number++;
+                if (line.trim().isEmpty()) continue;
+                try {
+                    final Entry entry = Entry.parse(name, number, JSON.readTree(line));
+                    final Path docFile = docRepository.docFile(Paths.get(entry.cls.split("\\$")[0].replace('.', '/') + ".java"));
+                    docImport.files.computeIfAbsent(docFile, file -> new LinkedHashMap<>())
+                        .computeIfAbsent(entry.element(), element -> new ArrayList<>())
+                        .add(entry);
+                    docImport.entries++;
+                } catch (JsonProcessingException e) {
+                    docImport.invalid.add(name + ":" + number + ": " + e.getOriginalMessage());
+                } catch (IllegalArgumentException e) {
+                    docImport.invalid.add(name + ":" + number + ": " + e.getMessage());
+                }
+            }
+        }
+        return docImport;
+    }
+
+    /**
+     * Returns the lines of the batch which are not valid entries, with the reason.
+     */
+    public List<String> invalid() {
+        return invalid;
+    }
+
+    /**
+     * Merges the entries into the doc files, and writes the doc files which changed, each at once.
+     */
+    public Summary importDocs(DocRepository docRepository, FileScheduler scheduler) {
+        final Summary summary = new Summary();
+        summary.entries = entries;
+        // line of the entry in the batch, conflict
+        final Map<Integer, String> conflicts = new ConcurrentSkipListMap<>();
+        final AtomicInteger created = new AtomicInteger();
+
+        // The files may not exist yet, so they are ordered by their number of entries instead
+        scheduler.run(files.keySet(), file -> files.get(file).size(), docFile -> {
+            final boolean exists = Files.exists(docFile);
+            final DocInfo doc = exists ? docRepository.editableDocInfo(docFile) : new DocInfo();
+            final AtomicBoolean changed = new AtomicBoolean();
+            files.get(docFile).forEach((element, elementEntries) -> {
+                final Entry entry = elementEntries.get(0);
+                final Set<String> texts = elementEntries.stream().map(e -> e.text).collect(Collectors.toSet());
+                if (texts.size() > 1) {
+                    final String lines = elementEntries.stream().map(e -> e.location).collect(Collectors.joining(", "));
+                    elementEntries.forEach(e -> conflicts.put(e.line, e.location + ": " + element + ": "
+                        + texts.size() + " different javadocs in the batch (" + lines + ")"));
+                    return;
+                }
+
+                final String current = text(entry.current(doc));
+                if (entry.text.equals(current)) {
+                    summary.unchanged.addAndGet(elementEntries.size());
+                } else if (current == null && entry.base == null) {
+                    entry.set(doc);
+                    changed.set(true);
+                    summary.added.addAndGet(elementEntries.size());
+                } else if (current != null && current.equals(entry.base)) {
+                    entry.set(doc);
+                    changed.set(true);
+                    summary.updated.addAndGet(elementEntries.size());
+                } else {
+                    final String reason = current == null ? "the javadoc it replaces was removed"
+                        : entry.base == null ? "already documented differently"
+                        : "documented differently since the javadoc it replaces";
+                    elementEntries.forEach(e -> conflicts.put(e.line, e.location + ": " + element + ": " + reason));
+                }
+            });
+            if (!changed.get()) return;
+
+            // Written next to the doc file and moved over it, so a failed import never leaves a partial doc file
+            final Path temp = docFile.resolveSibling(docFile.getFileName() + ".tmp");
+            Files.createDirectories(docFile.getParent());
+            Files.deleteIfExists(temp);
+            doc.write(temp);
+            Files.move(temp, docFile, StandardCopyOption.REPLACE_EXISTING);
+            docRepository.changed(docFile);
+            summary.written.incrementAndGet();
+            if (!exists) created.incrementAndGet();
+        });
+
+        if (created.get() > 0) docRepository.changed();
+        summary.conflicts = new ArrayList<>(conflicts.values());
+        return summary;
+    }
+
+    // The javadoc as written to the doc files, which is what is compared, or null if there is none
+    @Nullable
+    private static String text(@Nullable Javadoc javadoc) {
+        final StringWriter out = new StringWriter();
+        try (JsonGenerator gen = JSON.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            writeJavadoc(gen, javadoc);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString().equals("{}") ? null : out.toString();
+    }
+
+    public static class Summary {
+        public int entries;
+        public final AtomicInteger added = new AtomicInteger();
+        public final AtomicInteger updated = new AtomicInteger();
+        public final AtomicInteger unchanged = new AtomicInteger();
+        // Number of doc files written
+        public final AtomicInteger written = new AtomicInteger();
+        // "<file>:<line>: <element>: <reason>" of the entries which conflict, ordered by line
+        public List<String> conflicts = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return entries + " entries: " + added + " added, " + updated + " updated, " + unchanged + " unchanged, "
+                + conflicts.size() + " conflicted; " + written + " doc files written";
+        }
+    }
+
+    private static class Entry {
+        final int line;
+        final String location;
+        final String cls;
+        @Nullable final String field;
+        @Nullable final String method;
+        @Nullable final String descriptor;
+        final Javadoc javadoc;
+        final String text;
+        @Nullable final String base;
+
+        private Entry(String batch, int line, JsonNode node) {
+            this.line = line;
+            this.location = batch + ":" + line;
+            this.cls = required(node, "class");
+            this.field = optional(node, "field");
+            this.method = optional(node, "method");
+            this.descriptor = method != null ? required(node, "descriptor") : null;
+            if (field != null && method != null) throw new IllegalArgumentException("both a field and a method");
+            this.javadoc = readJavadoc(node);
+            this.text = javadoc != null ? text(javadoc) : null;
+            if (text == null) throw new IllegalArgumentException("no javadoc");
+            // The base has the form of a javadoc, which is read from the field of that name
+            final ObjectNode baseNode = JSON.createObjectNode();
+            if (node.has("base")) baseNode.set("javadoc", node.get("base"));
+            this.base = text(readJavadoc(baseNode));
+        }
+
+        static Entry parse(String batch, int line, JsonNode node) {
+            if (!node.isObject()) throw new IllegalArgumentException("not an object");
+            return new Entry(batch, line, node);
+        }
+
+        // Key of the element the way ValidateDocs and the coverage name it
+        String element() {
+            if (field != null) return cls + "#" + field;
+            if (method != null) return cls + "#" + method + " " + descriptor;
+            return cls;
+        }
+
+        @Nullable
+        Javadoc current(DocInfo doc) {
+            final ClassInfo classInfo = doc.classes.get(cls);
+            if (classInfo == null) return null;
+            if (field != null) {
+                final ClassInfo.FieldInfo fieldInfo = classInfo.fields.get(field);
+                return fieldInfo != null ? fieldInfo.javadoc : null;
+            }
+            if (method != null) {
+                final ClassInfo.MethodInfo methodInfo = classInfo.methods.get(method + " " + descriptor);
+                return methodInfo != null ? methodInfo.javadoc : null;
+            }
+            return classInfo.javadoc;
+        }
+
+        void set(DocInfo doc) {
+            final ClassInfo classInfo = doc.classes.computeIfAbsent(cls, ClassInfo::new);
+            if (field != null) {
+                classInfo.fields.computeIfAbsent(field, ClassInfo.FieldInfo::new).javadoc = javadoc;
+            } else if (method != null) {
+                classInfo.methods.computeIfAbsent(method + " " + descriptor,
+                    key -> new ClassInfo.MethodInfo(method, descriptor)).javadoc = javadoc;
+            } else {
+                classInfo.javadoc = javadoc;
+            }
+        }
+
+        private static String required(JsonNode node, String name) {
+            final String value = optional(node, name);
+            if (value == null) throw new IllegalArgumentException("no " + name);
+            return value;
+        }
+
+        @Nullable
+        private static String optional(JsonNode node, String name) {
+            final JsonNode value = node.get(name);
+            if (value == null || value.isNull()) return null;
+            if (!value.isTextual() || value.asText().isEmpty()) {
+                throw new IllegalArgumentException(name + " is not a name");
+            }
+            return value.asText();
+        }
+    }
+}
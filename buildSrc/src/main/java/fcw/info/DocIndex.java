@@ -0,0 +1,352 @@
+package fcw.info;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.javadoc.Javadoc;
+import com.github.javaparser.javadoc.JavadocBlockTag;
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import static fcw.info.DocInfo.ClassInfo;
+
+/**
+ * An inverted index over the doc files, which answers which documented packages, classes, fields and methods match a
+ * query without reading any doc file.
+ *
+ * <p>Every documented element is an entry of the index, and has terms in the form of {@code <field>:<value>}:</p>
+ * <ul>
+ *     <li>{@code kind}: {@code package}, {@code class}, {@code field} or {@code method}</li>
+ *     <li>{@code package}: the package of the element</li>
+ *     <li>{@code class}: the class of the element, or the class itself</li>
+ *     <li>{@code name}: the simple name of the element</li>
+ *     <li>{@code type}: the simple and qualified names of the types in the descriptor of a method, in lower case</li>
+ *     <li>{@code tag}: the names of the block tags of the javadoc</li>
+ *     <li>{@code text}: the words of the javadoc, in lower case</li>
+ * </ul>
+ *
+ * <p>A query is a list of terms separated by whitespace, all of which an entry has to match. A term without a field
+ * is a {@code text} term, a term prefixed with {@code -} must not match, and a value ending in {@code *} matches all
+ * values starting with the rest. For example, {@code package:net.minecraft.world* kind:method blockstate -tag:param}
+ * finds all methods in and below {@code net.minecraft.world} whose javadoc mentions {@code BlockState}, but which have
+ * no {@code @param} tags.</p>
+ *
+ * <p>The index is updated incrementally: only the doc files whose size, modification time and content changed since
+ * the last update are read again.</p>
+ */
+public class DocIndex {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern INLINE_TAG = Pattern.compile("\\{@\\w+");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}_$]+");
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;]+);");
+    // Fields whose values are matched regardless of case
+    private static final Set<String> LOWER_CASE_FIELDS = new HashSet<>(Arrays.asList("text", "type"));
+
+    public static DocIndex read(File file) {
+        if (!file.exists()) return new DocIndex();
+        try {
+            return JSON.readValue(file, DocIndex.class);
+        } catch (IOException e) {
+            // The index can always be rebuilt from the doc files
+            return new DocIndex();
+        }
+    }
+
+    // doc file path relative to the docs root, state of the doc file as of the last update
+    public Map<String, FileEntry> files = new TreeMap<>();
+    // entry id, entry
+    public Map<Integer, Entry> entries = new HashMap<>();
+    // term, ids of the entries with the term in ascending order
+    public TreeMap<String, int[]> postings = new TreeMap<>();
+    public int nextId;
+
+    public void write(File file) {
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            JSON.writeValue(file, this);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write doc index at " + file, e);
+        }
+    }
+
+    /**
+     * Updates the index for all doc files of the repository which were added, changed or removed since the last
+     * update.
+     *
+     * @return the number of doc files which were added, changed or removed
+     */
+    public int update(DocRepository docs, FileScheduler scheduler) throws IOException {
+        final Map<String, Path> docFiles = docs.files();
+
+        final Set<String> stale = new HashSet<>(files.keySet());
+        stale.removeAll(docFiles.keySet());
+
+        // doc file path relative to the docs root, entries of the file with their terms
+        final Map<String, List<IndexedEntry>> indexed = new ConcurrentHashMap<>();
+        final Map<String, FileEntry> updated = new ConcurrentHashMap<>();
+        scheduler.run(docFiles.values(), docFile -> {
+            final String local = Fingerprints.localPath(docs.root(), docFile);
+            final FileEntry old = files.get(local);
+            final FileEntry entry = new FileEntry();
+            entry.size = Files.size(docFile);
+            entry.modified = Files.getLastModifiedTime(docFile).toMillis();
+            if (old != null && old.size == entry.size && old.modified == entry.modified) return;
+
+            entry.hash = docs.hash(docFile);
+            if (old != null && entry.hash.equals(old.hash)) {
+                entry.ids = old.ids;
+            } else {
+                String key = local.substring(0, local.length() - docs.docFileExtension().length());
+                indexed.put(local, key.endsWith("package-info")
+                    ? indexPackage(docs.packageInfo(docFile), key)
+                    : indexClasses(docs.docInfo(docFile)));
+            }
+            updated.put(local, entry);
+        });
+
+        final int removed = stale.size();
+        stale.addAll(indexed.keySet());
+        remove(stale);
+
+        // Ids are handed out in order, so the postings stay sorted when the new ids are appended
+        final Map<String, List<Integer>> added = new HashMap<>();
+        for (String local : new TreeSet<>(indexed.keySet())) {
+            final List<IndexedEntry> fileEntries = indexed.get(local);
+            final int[] ids = new int[fileEntries.size()];
+            for (int i = 0; i < fileEntries.size(); i++) {
+                IndexedEntry fileEntry = fileEntries.get(i);
+                fileEntry.entry.file = local;
+                ids[i] = nextId++;
+                entries.put(ids[i], fileEntry.entry);
+                for (String term : fileEntry.terms) {
+                    added.computeIfAbsent(term, key -> new ArrayList<>()).add(ids[i]);
+                }
+            }
+            updated.get(local).ids = ids;
+        }
+        added.forEach((term, ids) -> {
+            final int[] existing = postings.getOrDefault(term, new int[0]);
+            final int[] merged = new int[existing.length + ids.size()];
+            System.arraycopy(existing, 0, merged, 0, existing.length);
+            for (int i = 0; i < ids.size(); i++) {
+                merged[existing.length + i] = ids.get(i);
+            }
+            postings.put(term, merged);
+        });
+
+        files.putAll(updated);
+        return updated.size() + removed;
+    }
+
+    private void remove(Set<String> localPaths) {
+        final BitSet removed = new BitSet();
+        for (String local : localPaths) {
+            FileEntry entry = files.remove(local);
+            if (entry == null || entry.ids == null) continue;
+            for (int id : entry.ids) {
+                removed.set(id);
+                entries.remove(id);
+            }
+        }
+        if (removed.isEmpty()) return;
+
+        postings.replaceAll((term, ids) -> Arrays.stream(ids).filter(id -> !removed.get(id)).toArray());
+        postings.values().removeIf(ids -> ids.length == 0);
+    }
+
+    private static List<IndexedEntry> indexPackage(PackageInfo pkgInfo, String key) {
+        final String pkg = key.contains("/") ? key.substring(0, key.lastIndexOf('/')).replace('/', '.') : "";
+        final IndexedEntry indexed = new IndexedEntry(new Entry("package", pkg));
+        indexed.terms.add("package:" + pkg);
+        indexed.terms.add("name:" + pkg);
+        addJavadoc(pkgInfo.javadoc, indexed.terms);
+
+        final List<IndexedEntry> entries = new ArrayList<>();
+        entries.add(indexed);
+        return entries;
+    }
+
+    private static List<IndexedEntry> indexClasses(DocInfo doc) {
+        final List<IndexedEntry> entries = new ArrayList<>();
+        for (ClassInfo clsInfo : doc.classes.values()) {
+            final int split = clsInfo.name.lastIndexOf('.');
+            final String pkg = split == -1 ? "" : clsInfo.name.substring(0, split);
+            final String simpleName = clsInfo.name.substring(split + 1);
+
+            IndexedEntry cls = new IndexedEntry(new Entry("class", clsInfo.name));
+            addOwner(cls.terms, pkg, clsInfo.name);
+            cls.terms.add("name:" + simpleName.substring(simpleName.lastIndexOf('$') + 1));
+            addJavadoc(clsInfo.javadoc, cls.terms);
+            entries.add(cls);
+
+            for (ClassInfo.FieldInfo fieldInfo : clsInfo.fields.values()) {
+                IndexedEntry field = new IndexedEntry(new Entry("field", clsInfo.name + "#" + fieldInfo.name));
+                addOwner(field.terms, pkg, clsInfo.name);
+                field.terms.add("name:" + fieldInfo.name);
+                addJavadoc(fieldInfo.javadoc, field.terms);
+                entries.add(field);
+            }
+
+            for (ClassInfo.MethodInfo methodInfo : clsInfo.methods.values()) {
+                IndexedEntry method = new IndexedEntry(
+                    new Entry("method", clsInfo.name + "#" + methodInfo.name + methodInfo.descriptor));
+                addOwner(method.terms, pkg, clsInfo.name);
+                method.terms.add("name:" + methodInfo.name);
+                Matcher types = DESCRIPTOR_TYPE.matcher(methodInfo.descriptor);
+                while (types.find()) {
+                    String type = types.group(1).replace('/', '.').toLowerCase(Locale.ROOT);
+                    method.terms.add("type:" + type);
+                    method.terms.add("type:" + type.substring(Math.max(type.lastIndexOf('.'), type.lastIndexOf('$')) + 1));
+                }
+                addJavadoc(methodInfo.javadoc, method.terms);
+                entries.add(method);
+            }
+        }
+        return entries;
+    }
+
+    private static void addOwner(Set<String> terms, String pkg, String cls) {
+        terms.add("package:" + pkg);
+        terms.add("class:" + cls);
+        // Inner classes are named with $, but usually written with .
+        if (cls.indexOf('$') != -1) terms.add("class:" + cls.replace('$', '.'));
+    }
+
+    private static void addJavadoc(@Nullable Javadoc javadoc, Set<String> terms) {
+        if (javadoc == null) return;
+        addWords(javadoc.getDescription().toText(), terms);
+        for (JavadocBlockTag tag : javadoc.getBlockTags()) {
+            terms.add("tag:" + tag.getTagName());
+            tag.getName().ifPresent(name -> addWords(name, terms));
+            addWords(tag.getContent().toText(), terms);
+        }
+    }
+
+    private static void addWords(String text, Set<String> terms) {
+        final String plain = INLINE_TAG.matcher(HTML_TAG.matcher(text).replaceAll(" ")).replaceAll(" ");
+        Matcher words = WORD.matcher(plain);
+        while (words.find()) {
+            terms.add("text:" + words.group().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Returns the entries which match the query, ordered by their keys.
+     */
+    public List<Entry> query(String query) {
+        BitSet matches = null;
+        final List<BitSet> excluded = new ArrayList<>();
+        for (String clause : query.trim().split("\\s+")) {
+            if (clause.isEmpty()) continue;
+            final boolean negated = clause.startsWith("-");
+            final BitSet clauseMatches = match(negated ? clause.substring(1) : clause);
+            if (negated) {
+                excluded.add(clauseMatches);
+            } else if (matches == null) {
+                matches = clauseMatches;
+            } else {
+                matches.and(clauseMatches);
+            }
+        }
+        if (matches == null) {
+            matches = new BitSet();
+            for (int id : entries.keySet()) {
+                matches.set(id);
+            }
+        }
+        for (BitSet exclude : excluded) {
+            matches.andNot(exclude);
+        }
+
+        return matches.stream()
+            .mapToObj(entries::get)
+            .sorted(Comparator.comparing(entry -> entry.key))
+            .collect(Collectors.toList());
+    }
+
+    private BitSet match(String clause) {
+        final int split = clause.indexOf(':');
+        final String field = split == -1 ? "text" : clause.substring(0, split);
+        String value = clause.substring(split + 1);
+        if (LOWER_CASE_FIELDS.contains(field)) value = value.toLowerCase(Locale.ROOT);
+
+        final BitSet matches = new BitSet();
+        final SortedMap<String, int[]> terms;
+        if (value.endsWith("*")) {
+            String prefix = field + ":" + value.substring(0, value.length() - 1);
+            terms = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        } else {
+            String term = field + ":" + value;
+            terms = postings.subMap(term, true, term, true);
+        }
+        for (int[] ids : terms.values()) {
+            for (int id : ids) {
+                matches.set(id);
+            }
+        }
+        return matches;
+    }
+
+    public static class FileEntry {
+        public long size;
+        public long modified;
+        public String hash;
+        // ids of the entries of the doc file
+        public int[] ids;
+    }
+
+    public static class Entry {
+        // package, class, field or method
+        public String kind;
+        // "<package>", "<class>", "<class>#<field>" or "<class>#<method><descriptor>"
+        public String key;
+        // doc file path relative to the docs root
+        public String file;
+
+        public Entry() {
+        }
+
+        Entry(String kind, String key) {
+            this.kind = kind;
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + key + " (" + file + ")";
+        }
+    }
+
+    // An entry which is being indexed, with its terms
+    private static class IndexedEntry {
+        final Entry entry;
+        final Set<String> terms = new HashSet<>();
+
+        IndexedEntry(Entry entry) {
+            this.entry = entry;
+            terms.add("kind:" + entry.kind);
+        }
+    }
+}
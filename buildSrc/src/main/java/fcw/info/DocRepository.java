@@ -0,0 +1,204 @@
+package fcw.info;
+
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+import fcw.Hashing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+import static fcw.info.InfoUtils.JSON;
+
+/**
+ * The doc files under a docs root, listed once and read and decoded at most once per content, so all tasks of a build
+ * can share them, see {@code DocRepositoryService}.
+ *
+ * <p>The hash and the decoded {@link DocInfo} or {@link PackageInfo} of a doc file are kept while its modification
+ * time and size are unchanged. If either changed, the file is hashed again, and only decoded again if its hash
+ * changed too. Whoever writes doc files tells the repository so through {@link #changed()} and
+ * {@link #changed(Path)}.</p>
+ */
+public class DocRepository {
+    private final Path root;
+    private final String docFileExtension;
+    // doc file path relative to the docs root, absolute path; null until listed
+    @Nullable private volatile Map<String, Path> files;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    public DocRepository(Path docsRoot, String docFileExtension) {
+        this.root = docsRoot.toAbsolutePath().normalize();
+        this.docFileExtension = docFileExtension;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public String docFileExtension() {
+        return docFileExtension;
+    }
+
+    /**
+     * Returns all doc files, keyed by their path relative to the docs root with '/' as separator.
+     */
+    public Map<String, Path> files() {
+        Map<String, Path> listed = files;
+        if (listed != null) return listed;
+        synchronized (this) {
+            if (files == null) {
+                final Map<String, Path> found = new TreeMap<>();
+                try {
+                    if (Files.isDirectory(root)) {
+                        for (Path file : FileScheduler.collect(root, path -> path.toString().endsWith(docFileExtension))) {
+                            found.put(Fingerprints.localPath(root, file), file);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to list the doc files in " + root, e);
+                }
+                files = Collections.unmodifiableMap(found);
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Forgets everything read from the doc files, after doc files were added, removed or rewritten.
+     */
+    public void changed() {
+        files = null;
+        entries.clear();
+    }
+
+    /**
+     * Forgets what was read from a doc file, after it was written. The modification time alone may miss a write, if
+     * it is as coarse as a second and the size stayed the same.
+     */
+    public void changed(Path docFile) {
+        entries.remove(docFile.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns the doc file of a source file, which need not exist.
+     *
+     * @param localSource the path of the source file relative to its source root
+     */
+    public Path docFile(Path localSource) {
+        final String name = localSource.getFileName().toString();
+        return root.resolve(localSource).resolveSibling(name.substring(0, name.length() - ".java".length()) + docFileExtension);
+    }
+
+    /**
+     * Returns the path of the source file of a doc file relative to its source root, with '/' as separator.
+     */
+    public String localSource(Path docFile) {
+        final String local = Fingerprints.localPath(root, docFile.toAbsolutePath().normalize());
+        return local.substring(0, local.length() - docFileExtension.length()) + ".java";
+    }
+
+    /**
+     * Returns whether the doc file is in the listed doc files.
+     */
+    public boolean isListed(Path docFile) {
+        return files().containsKey(Fingerprints.localPath(root, docFile.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * Returns the hash of the content of the doc file, or {@code null} if it does not exist.
+     */
+    @Nullable
+    public String hash(Path docFile) throws IOException {
+        final Entry entry = entry(docFile);
+        return entry != null ? entry.hash : null;
+    }
+
+    public DocInfo docInfo(Path docFile) {
+        return decode(docFile, DocInfo.class);
+    }
+
+    /**
+     * Returns a copy of the decoded doc file to change and write back, as what {@link #docInfo(Path)} returns is shared
+     * by all tasks of the build.
+     */
+    public DocInfo editableDocInfo(Path docFile) {
+        final DocInfo shared = docInfo(docFile);
+        try {
+            return JSON.readValue(JSON.writeValueAsBytes(shared), DocInfo.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to copy doc file from " + docFile, e);
+        }
+    }
+
+    public PackageInfo packageInfo(Path docFile) {
+        return decode(docFile, PackageInfo.class);
+    }
+
+    private <T> T decode(Path docFile, Class<T> type) {
+        try {
+            final Entry entry = entry(docFile);
+            if (entry == null) throw new NoSuchFileException(docFile.toString());
+            synchronized (entry) {
+                if (!type.isInstance(entry.decoded)) {
+                    entry.decoded = JSON.readValue(entry.content, type);
+                    // Only needed until the file is decoded
+                    entry.content = null;
+                }
+                return type.cast(entry.decoded);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read doc file from " + docFile, e);
+        }
+    }
+
+    @Nullable
+    private Entry entry(Path docFile) throws IOException {
+        final Path file = docFile.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            entries.remove(file);
+            return null;
+        }
+        final long modified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+        final Entry old = entries.get(file);
+        if (old != null && old.modified == modified && old.size == size) return old;
+
+        final byte[] content = Files.readAllBytes(file);
+        final Entry entry = new Entry(modified, size, Hashing.sha1(content));
+        if (old != null && old.hash.equals(entry.hash)) {
+            // Only touched, so what was decoded still holds
+            synchronized (old) {
+                entry.decoded = old.decoded;
+            }
+        }
+        if (entry.decoded == null) entry.content = content;
+        entries.put(file, entry);
+        return entry;
+    }
+
+    private static class Entry {
+        final long modified;
+        final long size;
+        final String hash;
+        // Content of the file until it is decoded
+        @Nullable byte[] content;
+        @Nullable Object decoded;
+
+        Entry(long modified, long size, String hash) {
+            this.modified = modified;
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+}
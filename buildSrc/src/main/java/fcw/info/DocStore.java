@@ -0,0 +1,336 @@
+package fcw.info;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.javaparser.javadoc.Javadoc;
+import fcw.FileScheduler;
+import fcw.Hashing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+import static fcw.info.DocInfo.ClassInfo;
+import static fcw.info.InfoUtils.*;
+
+/**
+ * Stores the doc files of several versions, sharing the javadocs between them.
+ *
+ * <p>Each javadoc is stored once as a blob under the hash of its content in {@code blobs/}. Each version has a
+ * manifest in {@code manifests/}, which lists the doc files of the version with the blob of every documented
+ * class and member. Blobs are cached once read, so exporting several versions from one store only reads each
+ * shared javadoc once.</p>
+ *
+ * <p>The store only moves doc files between the checkouts of the versions, through importDocStore and exportDocStore.
+ * No other task reads it: each version still reads and processes the doc files of its checkout, so building several
+ * versions shares no reads or cache entries.</p>
+ */
+public class DocStore {
+    private final Path root;
+    private final ConcurrentMap<String, Javadoc> cache = new ConcurrentHashMap<>();
+
+    public DocStore(Path root) {
+        this.root = root;
+    }
+
+    public Set<String> versions() throws IOException {
+        final Set<String> versions = new TreeSet<>();
+        Path manifests = root.resolve("manifests");
+        if (Files.isDirectory(manifests)) {
+            try (Stream<Path> files = Files.list(manifests)) {
+                files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".json"))
+                    .forEach(name -> versions.add(name.substring(0, name.length() - ".json".length())));
+            }
+        }
+        return versions;
+    }
+
+    @Nullable
+    public Manifest readManifest(String version) throws IOException {
+        Path file = manifestFile(version);
+        return Files.exists(file) ? JSON.readValue(file.toFile(), Manifest.class) : null;
+    }
+
+    public void writeManifest(String version, Manifest manifest) throws IOException {
+        Path file = manifestFile(version);
+        Files.createDirectories(file.getParent());
+        JSON.writeValue(file.toFile(), manifest);
+    }
+
+    /**
+     * Stores the javadoc, returning the hash of its blob or {@code null} if there is nothing to store.
+     */
+    @Nullable
+    public String put(@Nullable Javadoc javadoc) throws IOException {
+        final byte[] content = serialize(javadoc);
+        if (content == null) return null;
+
+        final String hash = Hashing.sha1(content);
+        Path blob = blobFile(hash);
+        if (Files.notExists(blob)) {
+            Files.createDirectories(blob.getParent());
+            // Concurrent writers of the same blob write the same content, so either move may win
+            Path temp = Files.createTempFile(blob.getParent(), hash, ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the hash the blob of the javadoc would have, without storing it.
+     */
+    @Nullable
+    private static String hash(@Nullable Javadoc javadoc) throws IOException {
+        final byte[] content = serialize(javadoc);
+        return content != null ? Hashing.sha1(content) : null;
+    }
+
+    @Nullable
+    private static byte[] serialize(@Nullable Javadoc javadoc) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = JSON.getFactory().createGenerator(out)) {
+            gen.writeStartObject();
+            writeJavadoc(gen, javadoc);
+            gen.writeEndObject();
+        }
+        final byte[] content = out.toByteArray();
+        // The javadoc was empty, so the object is too
+        return content.length <= 2 ? null : content;
+    }
+
+    public Javadoc get(String hash) {
+        return cache.computeIfAbsent(hash, key -> {
+            try {
+                Javadoc javadoc = readJavadoc(JSON.readTree(blobFile(key).toFile()));
+                if (javadoc == null) throw new IllegalStateException("Blob " + key + " holds no javadoc");
+                return javadoc;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read blob " + key, e);
+            }
+        });
+    }
+
+    /**
+     * Imports all doc files of the repository as the given version, replacing its previous manifest.
+     *
+     * @return the number of imported doc files
+     */
+    public int importDocs(String version, DocRepository docs, FileScheduler scheduler) throws IOException {
+        final Manifest manifest = new Manifest();
+        final Map<String, List<ClassEntry>> classes = new ConcurrentHashMap<>();
+        final Map<String, String> packages = new ConcurrentHashMap<>();
+
+        final Collection<Path> docFiles = docs.files().values();
+        scheduler.run(docFiles, docFile -> {
+            String key = key(docs.root(), docFile, docs.docFileExtension());
+            if (key.endsWith("package-info")) {
+                String hash = put(docs.packageInfo(docFile).javadoc);
+                if (hash != null) packages.put(key, hash);
+            } else {
+                classes.put(key, classEntries(docs.docInfo(docFile), true));
+            }
+        });
+
+        manifest.classes.putAll(classes);
+        manifest.packages.putAll(packages);
+        writeManifest(version, manifest);
+        return docFiles.size();
+    }
+
+    /**
+     * Writes the doc files of the given version under the docs root of the repository, replacing all doc files there.
+     *
+     * <p>The doc files are written into a directory next to the docs root first, which then takes the place of the
+     * docs root, so a failed export leaves the doc files as they were. Other files under the docs root are kept. Doc
+     * files which are not stored as they are in any version of the store would be lost, so the export is refused if
+     * there are any, unless forced.</p>
+     *
+     * @return the number of exported doc files
+     */
+    public int exportDocs(String version, DocRepository docs, FileScheduler scheduler, boolean force) throws IOException {
+        final Manifest manifest = readManifest(version);
+        if (manifest == null) {
+            throw new IllegalArgumentException("No version " + version + " in doc store " + root);
+        }
+
+        final Path docsRoot = docs.root();
+        final String docFileExtension = docs.docFileExtension();
+        if (!force) {
+            final List<String> unknown = unknownDocs(docs, scheduler);
+            if (!unknown.isEmpty()) {
+                throw new IllegalStateException(unknown.size() + " doc file(s) under " + docsRoot + " are not in doc store "
+                    + root + " as they are and would be lost, import them first or force the export: "
+                    + String.join(", ", unknown.subList(0, Math.min(10, unknown.size())))
+                    + (unknown.size() > 10 ? ", ..." : ""));
+            }
+        }
+
+        final Path exportRoot = docsRoot.resolveSibling(docsRoot.getFileName() + ".export");
+        final Path oldRoot = docsRoot.resolveSibling(docsRoot.getFileName() + ".old");
+        delete(exportRoot);
+        delete(oldRoot);
+
+        final AtomicInteger count = new AtomicInteger();
+        final List<Path> docFiles = new ArrayList<>();
+        manifest.classes.keySet().forEach(key -> docFiles.add(exportRoot.resolve(key + docFileExtension)));
+        manifest.packages.keySet().forEach(key -> docFiles.add(exportRoot.resolve(key + docFileExtension)));
+        try {
+            // The files do not exist yet, so there is no size to order them by
+            scheduler.run(docFiles, docFile -> 0, docFile -> {
+                String key = key(exportRoot, docFile, docFileExtension);
+
+                InfoHolder info;
+                if (manifest.packages.containsKey(key)) {
+                    info = new PackageInfo(get(manifest.packages.get(key)));
+                } else {
+                    final DocInfo doc = new DocInfo();
+                    for (ClassEntry entry : manifest.classes.get(key)) {
+                        ClassInfo clsInfo = new ClassInfo(entry.name);
+                        clsInfo.javadoc = entry.javadoc != null ? get(entry.javadoc) : null;
+                        entry.fields.forEach((name, hash) -> {
+                            ClassInfo.FieldInfo fieldInfo = new ClassInfo.FieldInfo(name);
+                            fieldInfo.javadoc = get(hash);
+                            clsInfo.fields.put(name, fieldInfo);
+                        });
+                        entry.methods.forEach((nameAndDescriptor, hash) -> {
+                            int split = nameAndDescriptor.indexOf(' ');
+                            ClassInfo.MethodInfo methodInfo = new ClassInfo.MethodInfo(
+                                nameAndDescriptor.substring(0, split), nameAndDescriptor.substring(split + 1));
+                            methodInfo.javadoc = get(hash);
+                            clsInfo.methods.put(nameAndDescriptor, methodInfo);
+                        });
+                        doc.classes.put(clsInfo.name, clsInfo);
+                    }
+                    info = doc;
+                }
+
+                Files.createDirectories(docFile.getParent());
+                info.write(docFile);
+                count.incrementAndGet();
+            });
+
+            Files.createDirectories(exportRoot);
+            for (Path other : FileScheduler.collect(docsRoot, path -> !path.toString().endsWith(docFileExtension))) {
+                Path target = exportRoot.resolve(docsRoot.relativize(other).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(other, target);
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(exportRoot);
+            throw e;
+        }
+
+        if (Files.exists(docsRoot)) {
+            Files.move(docsRoot, oldRoot);
+        }
+        Files.move(exportRoot, docsRoot);
+        delete(oldRoot);
+        docs.changed();
+        return count.get();
+    }
+
+    // The local paths of the doc files which no manifest of the store lists with the same javadocs
+    private List<String> unknownDocs(DocRepository docs, FileScheduler scheduler) throws IOException {
+        final List<Manifest> manifests = new ArrayList<>();
+        for (String version : versions()) {
+            manifests.add(readManifest(version));
+        }
+
+        final Set<String> unknown = ConcurrentHashMap.newKeySet();
+        scheduler.run(docs.files().values(), docFile -> {
+            String key = key(docs.root(), docFile, docs.docFileExtension());
+            boolean known;
+            if (key.endsWith("package-info")) {
+                // Without a javadoc, there is nothing to lose
+                String hash = hash(docs.packageInfo(docFile).javadoc);
+                known = hash == null || manifests.stream().anyMatch(manifest -> hash.equals(manifest.packages.get(key)));
+            } else {
+                JsonNode entries = JSON.valueToTree(classEntries(docs.docInfo(docFile), false));
+                known = manifests.stream().anyMatch(manifest -> manifest.classes.containsKey(key)
+                    && entries.equals(JSON.valueToTree(manifest.classes.get(key))));
+            }
+            if (!known) unknown.add(key + docs.docFileExtension());
+        });
+        return new ArrayList<>(new TreeSet<>(unknown));
+    }
+
+    // The entries of the classes of a doc file, storing their javadocs if told to
+    private List<ClassEntry> classEntries(DocInfo doc, boolean store) throws IOException {
+        final List<ClassEntry> entries = new ArrayList<>();
+        for (ClassInfo clsInfo : doc.classes.values()) {
+            ClassEntry entry = new ClassEntry();
+            entry.name = clsInfo.name;
+            entry.javadoc = store ? put(clsInfo.javadoc) : hash(clsInfo.javadoc);
+            for (ClassInfo.FieldInfo fieldInfo : clsInfo.fields.values()) {
+                String hash = store ? put(fieldInfo.javadoc) : hash(fieldInfo.javadoc);
+                if (hash != null) entry.fields.put(fieldInfo.name, hash);
+            }
+            for (ClassInfo.MethodInfo methodInfo : clsInfo.methods.values()) {
+                String hash = store ? put(methodInfo.javadoc) : hash(methodInfo.javadoc);
+                if (hash != null) entry.methods.put(methodInfo.name + " " + methodInfo.descriptor, hash);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static String key(Path docsRoot, Path docFile, String docFileExtension) {
+        String local = docsRoot.relativize(docFile).toString().replace(docFile.getFileSystem().getSeparator(), "/");
+        return local.substring(0, local.length() - docFileExtension.length());
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (Files.notExists(dir)) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Path manifestFile(String version) {
+        return root.resolve("manifests").resolve(version + ".json");
+    }
+
+    private Path blobFile(String hash) {
+        return root.resolve("blobs").resolve(hash.substring(0, 2)).resolve(hash.substring(2) + ".json");
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Manifest {
+        // doc file path relative to the docs root without extension, classes of the file
+        public Map<String, List<ClassEntry>> classes = new TreeMap<>();
+        // package-info doc file path relative to the docs root without extension, blob
+        public Map<String, String> packages = new TreeMap<>();
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class ClassEntry {
+        public String name;
+        public String javadoc;
+        // field name, blob
+        public Map<String, String> fields = new LinkedHashMap<>();
+        // "<method name> <method descriptor>", blob
+        public Map<String, String> methods = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,73 @@
+package fcw.site;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * The cache of the package lists of the external javadoc sites the javadocs link to. Javadoc reads the lists from the
+ * cache through {@code -linkoffline} instead of fetching them on every run, which keeps the build offline and its
+ * output independent of the sites. Each site is cached in a directory of its own, named after its URL without the
+ * scheme, holding the {@code element-list} or, for sites of Java 8 and older, the {@code package-list} of the site.
+ */
+public class ExternalLinks {
+    public static final String[] LIST_NAMES = {"element-list", "package-list"};
+    private static final int TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_REDIRECTS = 5;
+
+    public static File cacheDir(File linksDir, String url) {
+        String path = url.replaceFirst("^[A-Za-z]+://", "").replaceAll("/+$", "");
+        return new File(linksDir, path.replaceAll("[^A-Za-z0-9._/-]", "_"));
+    }
+
+    public static boolean isCached(File cacheDir) {
+        for (String name : LIST_NAMES) {
+            if (new File(cacheDir, name).isFile()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fetches a file of a site, following redirects, also from http to https, which {@link HttpURLConnection} does not.
+     *
+     * @return the content of the file, or {@code null} if the site has no such file
+     */
+    @Nullable
+    public static String fetch(String url) throws IOException {
+        URL current = new URL(url);
+        for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+            final HttpURLConnection connection = (HttpURLConnection) current.openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setInstanceFollowRedirects(false);
+            try {
+                final int status = connection.getResponseCode();
+                if (status >= 300 && status < 400 && connection.getHeaderField("Location") != null) {
+                    current = new URL(current, connection.getHeaderField("Location"));
+                    continue;
+                }
+                if (status == HttpURLConnection.HTTP_NOT_FOUND) return null;
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Unable to fetch " + current + ": HTTP " + status);
+                }
+                try (InputStream in = connection.getInputStream()) {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    final byte[] buffer = new byte[8192];
+                    for (int read; (read = in.read(buffer)) != -1; ) {
+                        out.write(buffer, 0, read);
+                    }
+                    // Line endings depend on the server, the cache should only change with the packages
+                    return new String(out.toByteArray(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw new IOException("Too many redirects fetching " + url);
+    }
+}
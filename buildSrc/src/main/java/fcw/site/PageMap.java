@@ -0,0 +1,203 @@
+package fcw.site;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * The map of the class pages of the javadoc sites of all versions, with which the version picker of the sites, see
+ * {@code version.js}, goes to the same page in another version, or to the nearest package page that version has.
+ *
+ * <p>Every site has the map of its own pages in {@code page-map/}: the class pages of each of its packages, with the
+ * packages spread over {@link #SHARDS} shards by the hash of their path. {@link #merge} merges the maps of the sites
+ * of all versions into the same shards next to the sites. There, each package has the versions which have the
+ * package and those of its class pages which not all of these versions have, and for the versions without the
+ * package, the nearest enclosing package they have. The picker so fetches a single shard, the one of the package of
+ * the current page.</p>
+ *
+ * <p>Versions are numbered by their position in the {@code versions} of a shard, and a set of versions is a number
+ * with the bit of each version set. A merged shard looks like this:</p>
+ * <pre>
+ * {"versions": ["1.15.x", "1.16.x"], "packages": {
+ *     "net/minecraft/block": {"in": 3, "up": {}, "pages": {"BeehiveBlock.html": 2}},
+ *     "net/minecraftforge/client/model/obj": {"in": 2, "up": {"0": "net/minecraftforge/client/model"}, "pages": {}}}}
+ * </pre>
+ */
+public class PageMap {
+    public static final String DIR = "page-map";
+    // version.js computes the shard of a package the same way, see shard() there
+    public static final int SHARDS = 64;
+    // Versions are bits of a JavaScript number, which is exact up to 53 bits
+    private static final int MAX_VERSIONS = 53;
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, List<String>>> SHARD = new TypeReference<Map<String, List<String>>>() { };
+
+    /**
+     * Writes the map of the pages of the site, replacing the previous one.
+     */
+    public static void write(Path siteDir) throws IOException {
+        final Map<Integer, Map<String, List<String>>> shards = new TreeMap<>();
+        for (String pkg : Files.readAllLines(siteDir.resolve("element-list"), StandardCharsets.UTF_8)) {
+            if (pkg.isEmpty() || pkg.startsWith("module:")) continue;
+            final String pkgPath = pkg.replace('.', '/');
+            final List<String> pages = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(siteDir.resolve(pkgPath), Files::isRegularFile)) {
+                for (Path file : files) {
+                    final String name = file.getFileName().toString();
+                    if (name.endsWith(".html") && !name.startsWith("package-")) pages.add(name);
+                }
+            }
+            pages.sort(null);
+            shards.computeIfAbsent(shard(pkgPath), shard -> new TreeMap<>()).put(pkgPath, pages);
+        }
+
+        final Path mapDir = siteDir.resolve(DIR);
+        delete(mapDir);
+        Files.createDirectories(mapDir);
+        for (Map.Entry<Integer, Map<String, List<String>>> shard : shards.entrySet()) {
+            JSON.writeValue(mapDir.resolve(shard.getKey() + ".json").toFile(), shard.getValue());
+        }
+    }
+
+    /**
+     * Merges the maps of the sites of all versions, the directories in the given directory which have a map, into
+     * the shards of a map next to them, replacing the previous one.
+     *
+     * @return the versions of the merged map
+     */
+    public static List<String> merge(Path sitesDir) throws IOException {
+        final List<String> versions = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(sitesDir, dir -> Files.isDirectory(dir.resolve(DIR)))) {
+            dirs.forEach(dir -> versions.add(dir.getFileName().toString()));
+        }
+        versions.sort(PageMap::compareVersions);
+        if (versions.size() > MAX_VERSIONS) {
+            throw new IllegalStateException("The page map can hold at most " + MAX_VERSIONS + " versions, found " + versions);
+        }
+
+        // package path, versions with the package
+        final Map<String, Long> packages = new HashMap<>();
+        // package path, class page, versions with the page
+        final Map<String, Map<String, Long>> pages = new HashMap<>();
+        final List<Set<String>> versionPackages = new ArrayList<>();
+        for (int version = 0; version < versions.size(); version++) {
+            final long bit = 1L << version;
+            final Set<String> own = new HashSet<>();
+            for (Path shard : list(sitesDir.resolve(versions.get(version)).resolve(DIR))) {
+                for (Map.Entry<String, List<String>> pkg : JSON.readValue(shard.toFile(), SHARD).entrySet()) {
+                    own.add(pkg.getKey());
+                    packages.merge(pkg.getKey(), bit, (a, b) -> a | b);
+                    final Map<String, Long> pkgPages = pages.computeIfAbsent(pkg.getKey(), key -> new TreeMap<>());
+                    pkg.getValue().forEach(page -> pkgPages.merge(page, bit, (a, b) -> a | b));
+                }
+            }
+            versionPackages.add(own);
+        }
+
+        final Map<Integer, Set<String>> shards = new TreeMap<>();
+        packages.keySet().forEach(pkg -> shards.computeIfAbsent(shard(pkg), shard -> new TreeSet<>()).add(pkg));
+
+        final Path mapDir = sitesDir.resolve(DIR);
+        delete(mapDir);
+        Files.createDirectories(mapDir);
+        for (Map.Entry<Integer, Set<String>> shard : shards.entrySet()) {
+            try (JsonGenerator gen = JSON.getFactory().createGenerator(mapDir.resolve(shard.getKey() + ".json").toFile(),
+                JsonEncoding.UTF8)) {
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("versions");
+                for (String version : versions) {
+                    gen.writeString(version);
+                }
+                gen.writeEndArray();
+                gen.writeObjectFieldStart("packages");
+                for (String pkg : shard.getValue()) {
+                    gen.writeObjectFieldStart(pkg);
+                    gen.writeNumberField("in", packages.get(pkg));
+                    gen.writeObjectFieldStart("up");
+                    for (int version = 0; version < versions.size(); version++) {
+                        if (!versionPackages.get(version).contains(pkg)) {
+                            gen.writeStringField(Integer.toString(version), enclosingPackage(pkg, versionPackages.get(version)));
+                        }
+                    }
+                    gen.writeEndObject();
+                    gen.writeObjectFieldStart("pages");
+                    for (Map.Entry<String, Long> page : pages.get(pkg).entrySet()) {
+                        // The picker assumes pages which are not listed to be in every version with their package
+                        if (page.getValue().longValue() != packages.get(pkg)) gen.writeNumberField(page.getKey(), page.getValue());
+                    }
+                    gen.writeEndObject();
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+                gen.writeEndObject();
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the shard of a package, by the hash of its path with '/' as separator.
+     */
+    public static int shard(String pkgPath) {
+        return Math.floorMod(pkgPath.hashCode(), SHARDS);
+    }
+
+    // The nearest package enclosing the package which the version has, or "" for the overview if there is none
+    private static String enclosingPackage(String pkgPath, Set<String> versionPackages) {
+        String enclosing = pkgPath;
+        while (enclosing.lastIndexOf('/') != -1) {
+            enclosing = enclosing.substring(0, enclosing.lastIndexOf('/'));
+            if (versionPackages.contains(enclosing)) return enclosing;
+        }
+        return "";
+    }
+
+    // Orders versions such as 1.16, 1.16.5 and 1.16.x, as the sites are deployed, by their numbers, and anything else
+    // by name after these
+    private static int compareVersions(String a, String b) {
+        final boolean numericA = a.matches("\\d+(\\.\\d+)*(\\.x)?");
+        final boolean numericB = b.matches("\\d+(\\.\\d+)*(\\.x)?");
+        if (!numericA || !numericB) return numericA != numericB ? (numericA ? -1 : 1) : a.compareTo(b);
+        final String[] partsA = a.replaceFirst("\\.x$", "").split("\\.");
+        final String[] partsB = b.replaceFirst("\\.x$", "").split("\\.");
+        for (int i = 0; i < Math.min(partsA.length, partsB.length); i++) {
+            final int compared = Integer.compare(Integer.parseInt(partsA[i]), Integer.parseInt(partsB[i]));
+            if (compared != 0) return compared;
+        }
+        return Integer.compare(partsA.length, partsB.length);
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.json")) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (Files.notExists(dir)) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package fcw.site;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server for previewing a generated javadoc site. Served pages reload themselves in the browser once
+ * {@link #notifyChanged()} is called.
+ */
+public class PreviewServer {
+    private static final String RELOAD_PATH = "/__fcw/version";
+    private static final String RELOAD_SCRIPT = "<script>(function () {\n"
+        + "    var version = null;\n"
+        + "    setInterval(function () {\n"
+        + "        fetch('" + RELOAD_PATH + "', { cache: 'no-store' })\n"
+        + "            .then(function (response) { return response.text(); })\n"
+        + "            .then(function (text) {\n"
+        + "                if (version !== null && version !== text) location.reload();\n"
+        + "                version = text;\n"
+        + "            })\n"
+        + "            .catch(function () {});\n"
+        + "    }, 250);\n"
+        + "})();</script>";
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+        CONTENT_TYPES.put("json", "application/json; charset=utf-8");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("zip", "application/zip");
+    }
+
+    private final Path siteDir;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong version = new AtomicLong();
+
+    public PreviewServer(Path siteDir, int port) throws IOException {
+        this.siteDir = siteDir.toAbsolutePath().normalize();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public URI getAddress() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Makes all open pages reload.
+     */
+    public void notifyChanged() {
+        version.incrementAndGet();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String requestPath = exchange.getRequestURI().getPath();
+            if (requestPath.equals(RELOAD_PATH)) {
+                respond(exchange, 200, "text/plain", Long.toString(version.get()).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            Path file = siteDir.resolve(requestPath.substring(1)).normalize();
+            if (Files.isDirectory(file)) {
+                file = file.resolve("index.html");
+            }
+            if (!file.startsWith(siteDir) || !Files.isRegularFile(file)) {
+                respond(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            String fileName = file.getFileName().toString();
+            String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+            byte[] content = Files.readAllBytes(file);
+            if (extension.equals("html")) {
+                content = injectReload(new String(content, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            }
+            respond(exchange, 200, CONTENT_TYPES.getOrDefault(extension, "application/octet-stream"), content);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String injectReload(String page) {
+        int bodyEnd = page.lastIndexOf("</body>");
+        return bodyEnd == -1 ? page + RELOAD_SCRIPT : page.substring(0, bodyEnd) + RELOAD_SCRIPT + page.substring(bodyEnd);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] content)
+        throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package fcw.site;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+import static fcw.site.SitePatcher.SEARCH_INDEX;
+import static fcw.site.SitePatcher.read;
+import static fcw.site.SitePatcher.replaceAll;
+
+/**
+ * Merges the outputs of several javadoc runs, each of which documented some packages of the site, into a single site.
+ *
+ * <p>Besides the parts, the merge needs the output of a skeleton run over all packages, which documented all types
+ * and fields, but only those methods and constructors the site-wide pages list. The site-wide pages, package trees
+ * and navigation bars are taken from the skeleton as they are. The pages of the packages are taken from the parts,
+ * with the class headers, which list known subclasses and implementations, taken from the skeleton, and the links
+ * between parts turned into links within the site. The index and the member and tag search indexes are merged from
+ * the parts.</p>
+ */
+public class SiteMerger {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    // Pages of the packages which list other parts, but which the skeleton has complete
+    private static final Set<String> SKELETON_PAGES = new HashSet<>(Arrays.asList(
+        "package-summary.html", "package-tree.html"
+    ));
+    // Navigation bar, which lists site-wide pages only if any run had content for them. Javadoc 9 to 15 name the
+    // classes of the markup in camel case and 16 and later in kebab case, the patterns match both.
+    private static final Pattern NAVIGATION = Pattern.compile(
+        "<ul (?:id=\"navbar[.-]top[.-]firstrow\" )?class=\"nav(?:List|-list)\" title=\"Navigation\">.*?</ul>", Pattern.DOTALL);
+    // Start of the description of a class up to its signature, holding the known subclasses and implementations
+    private static final Pattern CLASS_HEADER = Pattern.compile(
+        "(<section class=\"(?:class-)?description\"[^>]*>|<div class=\"description\">)(.*?)(<hr>)", Pattern.DOTALL);
+    // A link which javadoc rendered as a link to another site, as it pointed to another part; javadoc 11 marks the
+    // page of the link as external
+    private static final Pattern EXTERNAL_LINK = Pattern.compile(
+        "<a href=\"([^\":#?]*)(?:\\?is-external=true)?(#[^\"]*)?\"( title=\"[^\"]*\")? class=\"external(?:-l|L)ink\">");
+    // Any relative link marked as external, in whatever form, to tell if the pattern above misses any
+    private static final Pattern ANY_EXTERNAL_LINK = Pattern.compile(
+        "<a (?=[^>]*class=\"external(?:-l|L)ink\")(?![^>]*href=\"[^\"]*:)[^>]*>");
+    private static final Pattern TYPE_LINK = Pattern.compile("<a href=\"([^\"#]+\\.html)\" title=\"([^\"]*)\"");
+    private static final Pattern INDEX_SECTION = Pattern.compile(
+        "<h2 class=\"title\" id=\"I:([^\"]+)\">([^<]*)</h2>\\s*(<dl[^>]*>)(.*?)</dl>\\s*", Pattern.DOTALL);
+    private static final Pattern INDEX_ENTRY_START = Pattern.compile("<dt>");
+    private static final Pattern INDEX_LETTERS = Pattern.compile("(<a href=\"#I:[^\"]+\">[^<]*</a>&nbsp;)+");
+    private static final Pattern HREF = Pattern.compile("href=\"([^\"]*)\"");
+    private static final Pattern LINK_TEXT = Pattern.compile("<a [^>]*>(.*?)</a>", Pattern.DOTALL);
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+
+    private final Path siteDir;
+    private final Path skeletonDir;
+    private final List<Path> partDirs;
+    private final Comparator<String> order;
+    // Page of each type relative to the site, title of the links to it
+    private final Map<String, String> typeTitles = new HashMap<>();
+
+    public SiteMerger(Path siteDir, Path skeletonDir, List<Path> partDirs) {
+        this.siteDir = siteDir;
+        this.skeletonDir = skeletonDir;
+        this.partDirs = partDirs;
+        // Close to the order of the index of javadoc, which ignores case unless the names only differ in case
+        final Collator primary = Collator.getInstance(Locale.ROOT);
+        primary.setStrength(Collator.SECONDARY);
+        final Collator tertiary = Collator.getInstance(Locale.ROOT);
+        tertiary.setStrength(Collator.TERTIARY);
+        this.order = ((Comparator<String>) primary::compare).thenComparing(tertiary::compare);
+    }
+
+    public void merge() throws IOException {
+        copyTree(skeletonDir, siteDir);
+
+        Matcher typeLinks = TYPE_LINK.matcher(read(skeletonDir.resolve("allclasses-index.html")));
+        while (typeLinks.find()) {
+            // The first link of each row is the type, the type parameters after it link to the same page
+            typeTitles.putIfAbsent(typeLinks.group(1), typeLinks.group(2));
+        }
+
+        for (Path partDir : partDirs) {
+            for (String pkg : Files.readAllLines(partDir.resolve("element-list"), StandardCharsets.UTF_8)) {
+                if (!pkg.isEmpty() && !pkg.startsWith("module:")) {
+                    copyPackage(partDir, pkg.replace('.', '/'));
+                }
+            }
+        }
+
+        mergeIndex();
+        // The skeleton lacks most members, but all search tags of the site-wide pages are only in the skeleton
+        mergeSearchIndex("member-search-index.js", false);
+        mergeSearchIndex("tag-search-index.js", true);
+    }
+
+    private void copyPackage(Path partDir, String pkgPath) throws IOException {
+        Path source = partDir.resolve(pkgPath);
+        Path target = siteDir.resolve(pkgPath);
+        if (Files.notExists(source)) return;
+        Files.createDirectories(target);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(source, Files::isRegularFile)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (SKELETON_PAGES.contains(name)) continue;
+
+                Path dest = target.resolve(name);
+                if (!name.endsWith(".html")) {
+                    Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING);
+                    continue;
+                }
+                Path skeletonPage = skeletonDir.resolve(pkgPath).resolve(name);
+                String page = fixPage(read(file), Files.exists(skeletonPage) ? read(skeletonPage) : null, pkgPath, name);
+                Files.write(dest, page.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Path docFiles = source.resolve("doc-files");
+        if (Files.isDirectory(docFiles)) {
+            copyTree(docFiles, target.resolve("doc-files"));
+        }
+    }
+
+    /**
+     * Takes the navigation bars and the class header from the skeleton page. If the markup of the pages is not as
+     * expected, the merge fails rather than leaving the parts of the page as they were.
+     */
+    private String fixPage(String page, @Nullable String skeletonPage, String pkgPath, String name) {
+        if (skeletonPage != null) {
+            if (!NAVIGATION.matcher(page).find()) {
+                throw new IllegalStateException("No navigation bar found in " + pkgPath + "/" + name
+                    + ", the markup of this javadoc version is not supported");
+            }
+            String navigation = replaceAll(NAVIGATION, page, skeletonPage);
+            if (navigation == null) {
+                throw new IllegalStateException("The navigation bars of " + pkgPath + "/" + name
+                    + " differ from those of the skeleton");
+            }
+            page = navigation;
+
+            // Only the pages of types have a class header
+            if (!name.startsWith("package-")) {
+                Matcher header = CLASS_HEADER.matcher(page);
+                Matcher skeletonHeader = CLASS_HEADER.matcher(skeletonPage);
+                if (!header.find() || !skeletonHeader.find()) {
+                    throw new IllegalStateException("No class header found in " + pkgPath + "/" + name
+                        + ", the markup of this javadoc version is not supported");
+                }
+                page = page.substring(0, header.start(2)) + skeletonHeader.group(2) + page.substring(header.end(2));
+            }
+        }
+        return fixLinks(page, pkgPath);
+    }
+
+    // Renders links to other parts as javadoc renders links within the site
+    private String fixLinks(String page, String pkgPath) {
+        final StringBuffer buffer = new StringBuffer(page.length());
+        Matcher matcher = EXTERNAL_LINK.matcher(page);
+        int links = 0;
+        while (matcher.find()) {
+            links++;
+            String href = matcher.group(1);
+            String fragment = matcher.group(2);
+            String target = resolve(pkgPath, href);
+            String replacement;
+            if (target == null || !Files.exists(siteDir.resolve(target))) {
+                replacement = matcher.group();
+            } else if (fragment == null && typeTitles.containsKey(target)) {
+                replacement = "<a href=\"" + href + "\" title=\"" + typeTitles.get(target) + "\">";
+            } else {
+                replacement = "<a href=\"" + href + (fragment != null ? fragment : "") + "\">";
+            }
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(buffer);
+
+        int anyLinks = 0;
+        for (Matcher any = ANY_EXTERNAL_LINK.matcher(page); any.find(); ) {
+            anyLinks++;
+        }
+        if (anyLinks != links) {
+            throw new IllegalStateException("Found " + anyLinks + " links to other parts in " + pkgPath
+                + " but could only read " + links + ", the markup of this javadoc version is not supported");
+        }
+        return buffer.toString();
+    }
+
+    // Resolves a relative link of a page in the given package directory to a path relative to the site
+    @Nullable
+    private static String resolve(String pkgPath, String href) {
+        final List<String> path = new ArrayList<>(pkgPath.isEmpty() ? new ArrayList<>() : Arrays.asList(pkgPath.split("/")));
+        for (String segment : href.split("/")) {
+            if (segment.equals("..")) {
+                if (path.isEmpty()) return null;
+                path.remove(path.size() - 1);
+            } else if (!segment.equals(".") && !segment.isEmpty()) {
+                path.add(segment);
+            }
+        }
+        return String.join("/", path);
+    }
+
+    /**
+     * Merges the index pages of the parts into the index page of the skeleton, keeping the entries of each letter in
+     * the order of the index.
+     */
+    private void mergeIndex() throws IOException {
+        Path indexPage = siteDir.resolve("index-all.html");
+        if (Files.notExists(indexPage)) return;
+
+        // letter id, letter
+        final Map<String, String> letters = new HashMap<>();
+        // letter id, start of the definition list of the letter
+        final Map<String, String> lists = new HashMap<>();
+        // letter id, entries of the letter of each part
+        final Map<String, List<List<String>>> entries = new HashMap<>();
+        for (Path partDir : partDirs) {
+            Path partIndex = partDir.resolve("index-all.html");
+            if (Files.notExists(partIndex)) continue;
+
+            Matcher section = INDEX_SECTION.matcher(fixLinks(read(partIndex), ""));
+            while (section.find()) {
+                String id = section.group(1);
+                letters.putIfAbsent(id, section.group(2));
+                lists.putIfAbsent(id, section.group(3));
+                entries.computeIfAbsent(id, key -> new ArrayList<>()).add(splitEntries(section.group(4)));
+            }
+        }
+        if (letters.isEmpty()) return;
+
+        final List<String> ids = letters.keySet().stream()
+            .sorted(Comparator.comparing(letters::get, order))
+            .collect(Collectors.toList());
+
+        final StringBuilder sections = new StringBuilder();
+        final StringBuilder navigation = new StringBuilder();
+        for (String id : ids) {
+            sections.append("<h2 class=\"title\" id=\"I:").append(id).append("\">").append(letters.get(id)).append("</h2>\n")
+                .append(lists.get(id)).append('\n');
+            mergeSorted(entries.get(id), Comparator.comparing(SiteMerger::entryLabel, order)
+                .thenComparing(SiteMerger::entryHref, order))
+                .forEach(sections::append);
+            sections.append("</dl>\n");
+            navigation.append("<a href=\"#I:").append(id).append("\">").append(letters.get(id)).append("</a>&nbsp;");
+        }
+
+        String page = read(indexPage);
+        Matcher section = INDEX_SECTION.matcher(page);
+        int start = -1;
+        int end = -1;
+        while (section.find()) {
+            if (start == -1) start = section.start();
+            end = section.end();
+        }
+        if (start == -1) return;
+        page = page.substring(0, start) + sections + page.substring(end);
+        page = INDEX_LETTERS.matcher(page).replaceAll(Matcher.quoteReplacement(navigation.toString()));
+        Files.write(indexPage, page.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> splitEntries(String definitions) {
+        final List<String> entries = new ArrayList<>();
+        Matcher matcher = INDEX_ENTRY_START.matcher(definitions);
+        int start = -1;
+        while (matcher.find()) {
+            if (start != -1) entries.add(definitions.substring(start, matcher.start()));
+            start = matcher.start();
+        }
+        if (start != -1) entries.add(definitions.substring(start));
+        return entries;
+    }
+
+    // The index is ordered by the labels of the entries, which are their first link
+    private static String entryLabel(String entry) {
+        Matcher matcher = LINK_TEXT.matcher(entry);
+        return matcher.find() ? TAG.matcher(matcher.group(1)).replaceAll("") : entryText(entry);
+    }
+
+    private static String entryHref(String entry) {
+        Matcher matcher = HREF.matcher(entry);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    private static String entryText(String entry) {
+        return TAG.matcher(entry).replaceAll("").trim();
+    }
+
+    // Merges lists which are each sorted already, keeping the order of each list where the comparator does not decide
+    private static <T> List<T> mergeSorted(List<List<T>> lists, Comparator<T> comparator) {
+        final List<T> merged = new ArrayList<>();
+        final int[] positions = new int[lists.size()];
+        while (true) {
+            int next = -1;
+            for (int i = 0; i < lists.size(); i++) {
+                if (positions[i] >= lists.get(i).size()) continue;
+                if (next == -1 || comparator.compare(lists.get(i).get(positions[i]),
+                    lists.get(next).get(positions[next])) < 0) {
+                    next = i;
+                }
+            }
+            if (next == -1) return merged;
+            merged.add(lists.get(next).get(positions[next]++));
+        }
+    }
+
+    // Joins the entries of the search index of all parts and possibly the skeleton, in the order of their labels
+    private void mergeSearchIndex(String index, boolean withSkeleton) throws IOException {
+        Path siteIndex = siteDir.resolve(index);
+        if (Files.notExists(siteIndex)) return;
+        Matcher siteMatcher = SEARCH_INDEX.matcher(read(siteIndex));
+        if (!siteMatcher.matches()) return;
+
+        final List<List<JsonNode>> lists = new ArrayList<>();
+        if (withSkeleton) {
+            lists.add(readEntries(siteMatcher.group(2)));
+        }
+        for (Path partDir : partDirs) {
+            Path partIndex = partDir.resolve(index);
+            if (Files.notExists(partIndex)) continue;
+            Matcher partMatcher = SEARCH_INDEX.matcher(read(partIndex));
+            if (partMatcher.matches()) lists.add(readEntries(partMatcher.group(2)));
+        }
+
+        final Set<String> seen = new HashSet<>();
+        final ArrayNode merged = JSON.createArrayNode();
+        mergeSorted(lists, Comparator.comparing((JsonNode entry) -> entry.path("l").asText(), order)).stream()
+            .filter(entry -> seen.add(entry.toString()))
+            .forEach(merged::add);
+        String content = siteMatcher.group(1) + " = " + JSON.writeValueAsString(merged) + ";updateSearchResults();";
+        Files.write(siteIndex, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<JsonNode> readEntries(String array) throws IOException {
+        final List<JsonNode> entries = new ArrayList<>();
+        JSON.readTree(array).forEach(entries::add);
+        return entries;
+    }
+
+    /**
+     * Copies the files under the source directory to the same paths under the target directory, replacing existing
+     * ones.
+     */
+    public static void copyTree(Path source, Path target) throws IOException {
+        try (Stream<Path> walk = Files.walk(source)) {
+            for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                Path dest = target.resolve(source.relativize(file).toString());
+                Files.createDirectories(dest.getParent());
+                Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
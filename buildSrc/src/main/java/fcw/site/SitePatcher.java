@@ -0,0 +1,244 @@
+package fcw.site;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * Patches a generated javadoc site with the output of a partial javadoc run, which documented only some packages
+ * of the site.
+ *
+ * <p>The pages of the affected packages are copied over as they are. The site-wide pages are not regenerated;
+ * instead the descriptions of the affected elements in the summary pages and the entries of the search indexes are
+ * replaced with those from the partial run. This is only valid if the documented elements themselves did not change,
+ * which the caller has to ensure. The type and member search indexes only list these elements, without descriptions,
+ * so they are left as they are.</p>
+ *
+ * <p>The partial run may also have documented only some classes of the packages, together with their
+ * {@code package-info.java}. Then only the pages of these classes are copied over, and the package summaries are
+ * patched like the summary pages of the site.</p>
+ */
+public class SitePatcher {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final List<String> SUMMARY_PAGES = Arrays.asList(
+        "index-all.html", "allclasses-index.html", "allpackages-index.html", "overview-summary.html"
+    );
+    // Search indexes with the descriptions of elements, only the search tags have one
+    private static final List<String> SEARCH_INDEXES = Collections.singletonList("tag-search-index.js");
+    static final Pattern SEARCH_INDEX = Pattern.compile("^(\\w+) = (\\[.*]);updateSearchResults\\(\\);\\s*$",
+        Pattern.DOTALL);
+    // Start of a single entry in a summary page: an index definition or a row of a summary table (both layouts)
+    private static final List<String> ENTRY_STARTS = Arrays.asList("<dt>", "<tr ", "<tr>", "<div class=\"col-first");
+    private static final Pattern HREF = Pattern.compile("href=\"([^\"]*)\"");
+    private static final Pattern BLOCK = Pattern.compile("<div class=\"block\">.*?</div>", Pattern.DOTALL);
+    private static final Pattern DEFINITION = Pattern.compile("<dd>.*?</dd>", Pattern.DOTALL);
+
+    private final Path siteDir;
+    private final Path partialDir;
+    private final Set<String> packages;
+    private final boolean wholePackages;
+
+    /**
+     * @param wholePackages whether the partial run documented all classes of the packages, or only some of them
+     */
+    public SitePatcher(Path siteDir, Path partialDir, Set<String> packages, boolean wholePackages) {
+        this.siteDir = siteDir;
+        this.partialDir = partialDir;
+        this.packages = packages;
+        this.wholePackages = wholePackages;
+    }
+
+    /**
+     * Patches the site. If any site-wide page cannot be patched, the site is left untouched and {@code false} is
+     * returned, in which case the site has to be regenerated fully.
+     */
+    public boolean patch() throws IOException {
+        // Merge everything in memory first, so a failure leaves the site as it was
+        final Map<Path, String> pages = new LinkedHashMap<>();
+        final List<String> summaryPages = new ArrayList<>(SUMMARY_PAGES);
+        if (!wholePackages) {
+            packages.forEach(pkg -> summaryPages.add(pkg.replace('.', '/') + "/package-summary.html"));
+        }
+        for (String page : summaryPages) {
+            Path sitePage = siteDir.resolve(page);
+            Path partialPage = partialDir.resolve(page);
+            if (Files.notExists(partialPage) && page.equals("overview-summary.html")) {
+                // A partial run over a single package has no overview, but lists the same rows in all packages
+                partialPage = partialDir.resolve("allpackages-index.html");
+            }
+            if (Files.notExists(sitePage) || Files.notExists(partialPage)) continue;
+
+            String merged = mergeSummary(read(sitePage), read(partialPage));
+            if (merged == null) return false;
+            pages.put(sitePage, merged);
+        }
+        for (String index : SEARCH_INDEXES) {
+            Path siteIndex = siteDir.resolve(index);
+            Path partialIndex = partialDir.resolve(index);
+            if (Files.notExists(siteIndex) || Files.notExists(partialIndex)) continue;
+
+            String merged = mergeSearchIndex(read(siteIndex), read(partialIndex));
+            if (merged == null) return false;
+            pages.put(siteIndex, merged);
+        }
+
+        for (String pkg : packages) {
+            copyPackage(pkg.replace('.', '/'));
+        }
+        for (Map.Entry<Path, String> page : pages.entrySet()) {
+            Files.write(page.getKey(), page.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        return true;
+    }
+
+    private void copyPackage(String pkgPath) throws IOException {
+        Path source = partialDir.resolve(pkgPath);
+        Path target = siteDir.resolve(pkgPath);
+        if (Files.notExists(source)) return;
+        Files.createDirectories(target);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(source, Files::isRegularFile)) {
+            for (Path file : files) {
+                // These only list the documented classes, the package summary is patched instead
+                if (!wholePackages && file.getFileName().toString().startsWith("package-")) continue;
+                Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Path docFiles = source.resolve("doc-files");
+        if (Files.isDirectory(docFiles)) {
+            try (Stream<Path> walk = Files.walk(docFiles)) {
+                for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+                    Path dest = target.resolve(source.relativize(file).toString());
+                    Files.createDirectories(dest.getParent());
+                    Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the descriptions of the entries in the site page with those of the same entries in the partial page.
+     * Returns {@code null} if an entry gained or lost a description, as the surrounding markup would change.
+     */
+    @Nullable
+    static String mergeSummary(String sitePage, String partialPage) {
+        final Map<String, String> partialEntries = new HashMap<>();
+        for (int start = entryStart(partialPage, 0); start != -1; ) {
+            int next = entryStart(partialPage, start + 1);
+            int end = next != -1 ? next : partialPage.length();
+            String key = entryKey(partialPage, start, end);
+            if (key != null) partialEntries.put(key, partialPage.substring(start, end));
+            start = next;
+        }
+
+        // The pages of the whole site are large and few of their entries change, so the others are copied as they are
+        final StringBuilder builder = new StringBuilder(sitePage.length());
+        int start = entryStart(sitePage, 0);
+        builder.append(sitePage, 0, start != -1 ? start : sitePage.length());
+        while (start != -1) {
+            int next = entryStart(sitePage, start + 1);
+            int end = next != -1 ? next : sitePage.length();
+            String key = entryKey(sitePage, start, end);
+            String partialEntry = key != null ? partialEntries.get(key) : null;
+            if (partialEntry == null) {
+                builder.append(sitePage, start, end);
+            } else {
+                String entry = sitePage.substring(start, end);
+                String replaced = replaceAll(entry.startsWith("<dt>") ? DEFINITION : BLOCK, entry, partialEntry);
+                if (replaced == null) return null;
+                builder.append(replaced);
+            }
+            start = next;
+        }
+        return builder.toString();
+    }
+
+    // Replaces each match in the target with the match at the same position in the source
+    @Nullable
+    static String replaceAll(Pattern pattern, String target, String source) {
+        final List<String> replacements = new ArrayList<>();
+        Matcher sourceMatcher = pattern.matcher(source);
+        while (sourceMatcher.find()) {
+            replacements.add(sourceMatcher.group());
+        }
+
+        final StringBuffer buffer = new StringBuffer(target.length());
+        Matcher targetMatcher = pattern.matcher(target);
+        int index = 0;
+        while (targetMatcher.find()) {
+            if (index >= replacements.size()) return null;
+            targetMatcher.appendReplacement(buffer, Matcher.quoteReplacement(replacements.get(index++)));
+        }
+        if (index != replacements.size()) return null;
+        targetMatcher.appendTail(buffer);
+        return buffer.toString();
+    }
+
+    // Scans for the markup itself, as a pattern is slow on pages the size of the index of a whole site
+    private static int entryStart(String page, int from) {
+        for (int start = page.indexOf('<', from); start != -1; start = page.indexOf('<', start + 1)) {
+            for (String entryStart : ENTRY_STARTS) {
+                if (page.startsWith(entryStart, start)) return start;
+            }
+        }
+        return -1;
+    }
+
+    // The first link of an entry points to the documented element
+    @Nullable
+    private static String entryKey(String page, int start, int end) {
+        Matcher matcher = HREF.matcher(page).region(start, end);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Replaces the entries of the affected packages in the site search index with those of the partial search index.
+     */
+    @Nullable
+    String mergeSearchIndex(String siteIndex, String partialIndex) throws IOException {
+        Matcher siteMatcher = SEARCH_INDEX.matcher(siteIndex);
+        Matcher partialMatcher = SEARCH_INDEX.matcher(partialIndex);
+        if (!siteMatcher.matches() || !partialMatcher.matches()) return null;
+
+        final ArrayNode merged = JSON.createArrayNode();
+        for (JsonNode entry : JSON.readTree(siteMatcher.group(2))) {
+            if (!isAffected(entry)) merged.add(entry);
+        }
+        for (JsonNode entry : JSON.readTree(partialMatcher.group(2))) {
+            if (isAffected(entry)) merged.add(entry);
+        }
+        return siteMatcher.group(1) + " = " + JSON.writeValueAsString(merged) + ";updateSearchResults();";
+    }
+
+    // Search tags link to the page they are defined in, which the partial run documented if it is part of its output
+    private boolean isAffected(JsonNode entry) {
+        if (!entry.has("h") || !entry.has("u")) return false;
+        String page = entry.get("u").asText().replaceFirst("#.*$", "");
+        int fileStart = page.lastIndexOf('/');
+        return fileStart != -1 && packages.contains(page.substring(0, fileStart).replace('/', '.'))
+            && (wholePackages || Files.exists(partialDir.resolve(page)));
+    }
+
+    static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+package fcw.site;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * The cached model of a generated javadoc site: the documented source files it was generated from, keyed by their
+ * path relative to their source root, and their content and signature hashes.
+ */
+public class SiteState {
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Nullable
+    public static SiteState read(Path path) {
+        if (Files.notExists(path)) return null;
+        try {
+            return JSON.readValue(path.toFile(), SiteState.class);
+        } catch (IOException e) {
+            // A broken state only means we cannot patch the site, so treat it as missing
+            return null;
+        }
+    }
+
+    public Map<String, SourceEntry> sources = new TreeMap<>();
+
+    public void write(Path path) {
+        try {
+            Files.createDirectories(path.getParent());
+            JSON.writeValue(path.toFile(), this);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write site state at " + path, e);
+        }
+    }
+
+    public static class SourceEntry {
+        public String hash;
+        public String signature;
+        // Of the file when it was hashed, so the hash is only computed again if they changed
+        public long size;
+        public long lastModified;
+
+        public SourceEntry() {
+        }
+
+        public SourceEntry(String hash, String signature, long size, long lastModified) {
+            this.hash = hash;
+            this.signature = signature;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package fcw.site;
+
+import com.github.javaparser.JavaParser;
+import fcw.DocUtils;
+import fcw.Hashing;
+import fcw.ParserUtils;
+import fcw.info.DocRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import static fcw.site.SiteState.SourceEntry;
+
+/**
+ * Updates a generated javadoc site for the documented source files which changed since the last update, by
+ * regenerating only the changed files, or their packages, and patching them into the site, see {@link SitePatcher}.
+ *
+ * <p>If only the docs of classes changed, only these classes are documented again, as they do not change the pages of
+ * the other classes of their packages. Copies of their docs in these pages, for members which override theirs, are
+ * left as they are, as in the pages of the other packages.</p>
+ *
+ * <p>If the declarations of a changed file changed, or files were added or removed, the whole site is regenerated
+ * instead, as that may change any page which lists or links to them. The state of the site is kept in a
+ * {@link SiteState} file between updates.</p>
+ */
+public class SiteUpdater {
+    private final Path siteDir;
+    private final List<File> sourcesDirs;
+    private final Path stateFile;
+    @Nullable private final Path extraDir;
+    private final Path workDir;
+    private final Javadoc javadoc;
+    private final Consumer<String> log;
+    private final JavaParser parser = new JavaParser();
+
+    /**
+     * @param extraDir copied into the site after a full generation
+     * @param workDir  where partial runs are made, cleared before each
+     */
+    public SiteUpdater(Path siteDir, List<File> sourcesDirs, Path stateFile, @Nullable Path extraDir, Path workDir,
+                       Javadoc javadoc, Consumer<String> log) {
+        this.siteDir = siteDir;
+        this.sourcesDirs = sourcesDirs;
+        this.stateFile = stateFile;
+        this.extraDir = extraDir;
+        this.workDir = workDir;
+        this.javadoc = javadoc;
+        this.log = log;
+    }
+
+    /**
+     * Updates the site for the source files with a doc file in the repository. Returns whether the site changed.
+     */
+    public boolean update(DocRepository docs) throws IOException {
+        final Map<String, File> sources = new TreeMap<>();
+        for (File sourcesDir : sourcesDirs) {
+            for (File file : DocUtils.filter(sourcesDir, docs)) {
+                sources.put(sourcesDir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'), file);
+            }
+        }
+
+        final SiteState previous = SiteState.read(stateFile);
+        // Files modified after this may have been modified after they were hashed, at the resolution of the file times
+        final long previousWritten = previous != null ? Files.getLastModifiedTime(stateFile).toMillis() : 0;
+        final SiteState current = new SiteState();
+        final Set<String> changed = new TreeSet<>();
+        boolean full = previous == null
+            || Files.notExists(siteDir.resolve("element-list"))
+            || !previous.sources.keySet().equals(sources.keySet());
+
+        for (Map.Entry<String, File> source : sources.entrySet()) {
+            SourceEntry old = previous != null ? previous.sources.get(source.getKey()) : null;
+            long size = source.getValue().length();
+            long lastModified = source.getValue().lastModified();
+            if (old != null && old.size == size && old.lastModified == lastModified && lastModified < previousWritten) {
+                current.sources.put(source.getKey(), old);
+                continue;
+            }
+            String hash = Hashing.sha1(source.getValue().toPath());
+            if (old != null && hash.equals(old.hash)) {
+                current.sources.put(source.getKey(), new SourceEntry(old.hash, old.signature, size, lastModified));
+                continue;
+            }
+
+            String signature = Hashing.sha1(ParserUtils.toSignature(ParserUtils.parse(parser, source.getValue().toPath())));
+            current.sources.put(source.getKey(), new SourceEntry(hash, signature, size, lastModified));
+            changed.add(source.getKey());
+            if (old == null || !signature.equals(old.signature)) {
+                full = true;
+            }
+        }
+
+        if (!full && changed.isEmpty()) {
+            log.accept("Javadocs in " + siteDir + " are up to date");
+            return false;
+        }
+
+        if (!full) {
+            final Set<String> packages = changed.stream()
+                .map(SiteUpdater::packageOf)
+                .collect(Collectors.toCollection(TreeSet::new));
+            // The package-info of a package is always documented, so the descriptions of the packages stay the same
+            final boolean wholePackages = changed.stream().anyMatch(SiteUpdater::isPackageInfo);
+            final List<File> partialSources = sources.entrySet().stream()
+                .filter(entry -> packages.contains(packageOf(entry.getKey())))
+                .filter(entry -> wholePackages || changed.contains(entry.getKey()) || isPackageInfo(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+
+            Path partialDir = workDir.resolve("partial");
+            PageMap.delete(partialDir);
+            javadoc.run(partialSources, partialDir.toFile(), siteDir.toFile());
+
+            if (new SitePatcher(siteDir, partialDir, packages, wholePackages).patch()) {
+                log.accept("Updated javadocs for " + changed.size() + " changed file(s) in " + packages.size() + " package(s)");
+            } else {
+                log.accept("Site-wide pages of " + siteDir + " could not be patched, regenerating all javadocs");
+                full = true;
+            }
+        }
+
+        if (full) {
+            PageMap.delete(siteDir);
+            javadoc.run(new ArrayList<>(sources.values()), siteDir.toFile(), null);
+            if (extraDir != null && Files.isDirectory(extraDir)) {
+                SiteMerger.copyTree(extraDir, siteDir);
+            }
+            PageMap.write(siteDir);
+            log.accept("Generated javadocs for " + sources.size() + " file(s)");
+        }
+
+        current.write(stateFile);
+        return true;
+    }
+
+    private static boolean isPackageInfo(String path) {
+        return path.equals("package-info.java") || path.endsWith("/package-info.java");
+    }
+
+    private static String packageOf(String path) {
+        int fileStart = path.lastIndexOf('/');
+        return fileStart == -1 ? "" : path.substring(0, fileStart).replace('/', '.');
+    }
+
+    /**
+     * A javadoc run with the options of the site.
+     */
+    public interface Javadoc {
+        /**
+         * Documents the source files into the destination. If a linked site is given, the destination only holds
+         * some packages of that site and links to the others in it, under the same layout.
+         */
+        void run(List<File> sourceFiles, File destination, @Nullable File linkedSite) throws IOException;
+    }
+}
@@ -0,0 +1,222 @@
+package fcw.tasks;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import fcw.FileScheduler;
+import fcw.ParserUtils;
+import fcw.Stubs;
+import fcw.site.PageMap;
+import fcw.site.SiteMerger;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.javadoc.Javadoc;
+import org.gradle.external.javadoc.StandardJavadocDocletOptions;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+/**
+ * Assembles the javadocs of the source files from several javadoc runs in parallel, merging their outputs into the
+ * output directory of a {@link Javadoc} task, which supplies the options of all runs, see {@link JavadocRuns}.
+ *
+ * <p>The packages are split into parts along the groups of the groups file, and groups larger than their share of
+ * the threads are split further. The parts link to each other through an element list of all packages. Next to the
+ * parts, a skeleton of all source files without most methods is documented, which yields the site-wide pages. See
+ * {@link SiteMerger} for how the outputs are merged.</p>
+ *
+ * <p>The runs only finish before a single run of the {@link Javadoc} task if each of them gets a core of its own, so
+ * this task is not part of the default build.</p>
+ */
+public class AssembleJavadocs extends DefaultTask {
+    private static final Pattern GROUP = Pattern.compile("-group\\s+\"([^\"]*)\"\\s+\"([^\"]*)\"");
+
+    @Input public List<File> sourcesDirs = new ArrayList<>();
+    @Input public File groupsFile;
+    // Copied into the output after the merge
+    @Input public File extraDir;
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    @Internal public JavadocRuns javadoc;
+
+    private final ExecOperations exec;
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public AssembleJavadocs(ExecOperations exec, FileSystemOperations fileSystem) {
+        this.exec = exec;
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final File siteDir = javadoc.getDestinationDir();
+        final File workDir = getTemporaryDir();
+        fileSystem.delete(spec -> spec.delete((Object[]) workDir.listFiles()));
+
+        // package, source files of the package
+        final Map<String, List<Path>> packages = new TreeMap<>();
+        final Map<Path, Path> roots = new HashMap<>();
+        for (File sourcesDir : sourcesDirs) {
+            final Path root = sourcesDir.toPath().toAbsolutePath();
+            for (Path file : FileScheduler.collect(root, path -> path.toString().endsWith(".java"))) {
+                packages.computeIfAbsent(packageOf(root.relativize(file)), pkg -> new ArrayList<>()).add(file);
+                roots.put(file, root);
+            }
+        }
+        if (packages.isEmpty()) {
+            getLogger().lifecycle("No source files to document");
+            return;
+        }
+
+        final File linksDir = new File(workDir, "links");
+        Files.createDirectories(linksDir.toPath());
+        Files.write(new File(linksDir, "element-list").toPath(), packages.keySet(), StandardCharsets.UTF_8);
+
+        final File skeletonSources = new File(workDir, "skeleton-sources");
+        final List<Path> files = packages.values().stream().flatMap(List::stream).collect(Collectors.toList());
+        final ParserConfiguration parserConfiguration = new ParserConfiguration().setAttributeComments(true);
+        final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(parserConfiguration));
+
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            final Set<String> references = ConcurrentHashMap.newKeySet();
+            scheduler.run(files, file -> Stubs.collectReferences(
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8), references));
+            scheduler.run(files, file -> {
+                Path skeletonFile = skeletonSources.toPath().resolve(roots.get(file).relativize(file).toString());
+                Files.createDirectories(skeletonFile.getParent());
+                ParserUtils.save(Stubs.toSkeleton(ParserUtils.parse(parsers.get(), file), references), skeletonFile);
+            });
+
+            // options file of the run, weight of the run
+            final Map<Path, Long> runs = new LinkedHashMap<>();
+            final File skeletonDir = new File(workDir, "skeleton");
+            final List<File> skeletonFiles = FileScheduler.collect(skeletonSources.toPath(), path -> true).stream()
+                .map(Path::toFile)
+                .collect(Collectors.toList());
+            runs.put(writeOptions("skeleton", skeletonFiles, skeletonDir, null),
+                skeletonFiles.stream().mapToLong(File::length).sum());
+
+            final List<Path> partDirs = new ArrayList<>();
+            final List<List<String>> parts = partition(packages);
+            for (int i = 0; i < parts.size(); i++) {
+                final List<File> partFiles = parts.get(i).stream()
+                    .flatMap(pkg -> packages.get(pkg).stream())
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+                final File partDir = new File(workDir, "part-" + i);
+                partDirs.add(partDir.toPath());
+                runs.put(writeOptions("part-" + i, partFiles, partDir, linksDir),
+                    partFiles.stream().mapToLong(File::length).sum());
+            }
+            getLogger().lifecycle("Documenting {} packages in {} parts", packages.size(), parts.size());
+
+            scheduler.run(runs.keySet(), runs::get, optionsFile -> javadoc.run(exec, optionsFile.toFile()));
+
+            fileSystem.delete(spec -> spec.delete(siteDir));
+            new SiteMerger(siteDir.toPath(), skeletonDir.toPath(), partDirs).merge();
+        }
+
+        fileSystem.copy(spec -> {
+            spec.from(extraDir);
+            spec.into(siteDir);
+        });
+        PageMap.write(siteDir.toPath());
+    }
+
+    /**
+     * Splits the packages into parts, keeping each group of the groups file apart and splitting each group into
+     * parts of about the same size, such that there are about as many parts as threads.
+     */
+    private List<List<String>> partition(Map<String, List<Path>> packages) throws IOException {
+        final Map<String, String> patterns = new LinkedHashMap<>();
+        Matcher matcher = GROUP.matcher(new String(Files.readAllBytes(groupsFile.toPath()), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            for (String pattern : matcher.group(2).split(":")) {
+                patterns.put(pattern, matcher.group(1));
+            }
+        }
+
+        // group, packages of the group; packages without a group end up in a group of their own
+        final Map<String, List<String>> groups = new LinkedHashMap<>();
+        patterns.values().forEach(group -> groups.put(group, new ArrayList<>()));
+        final Map<String, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (Map.Entry<String, List<Path>> pkg : packages.entrySet()) {
+            groups.computeIfAbsent(groupOf(pkg.getKey(), patterns), group -> new ArrayList<>()).add(pkg.getKey());
+            long size = pkg.getValue().stream().mapToLong(FileScheduler::size).sum();
+            sizes.put(pkg.getKey(), size);
+            total += size;
+        }
+
+        final long target = Math.max(1, total / Math.max(1, threads));
+        final List<List<String>> parts = new ArrayList<>();
+        for (List<String> group : groups.values()) {
+            List<String> part = new ArrayList<>();
+            long size = 0;
+            for (String pkg : group) {
+                if (!part.isEmpty() && size + sizes.get(pkg) > target) {
+                    parts.add(part);
+                    part = new ArrayList<>();
+                    size = 0;
+                }
+                part.add(pkg);
+                size += sizes.get(pkg);
+            }
+            if (!part.isEmpty()) parts.add(part);
+        }
+        return parts;
+    }
+
+    // Like javadoc, the longest matching pattern decides the group
+    private static String groupOf(String pkg, Map<String, String> patterns) {
+        String match = null;
+        for (String pattern : patterns.keySet()) {
+            boolean matches = pattern.endsWith("*")
+                ? pkg.startsWith(pattern.substring(0, pattern.length() - 1))
+                : pkg.equals(pattern);
+            if (matches && (match == null || pattern.length() > match.length())) {
+                match = pattern;
+            }
+        }
+        return match != null ? patterns.get(match) : "";
+    }
+
+    private Path writeOptions(String name, List<File> sourceFiles, File destination, File linksDir) throws IOException {
+        final StandardJavadocDocletOptions options = javadoc.options(sourceFiles, destination);
+        if (linksDir != null) {
+            // The other parts are merged into the same site, so their pages are relative to the pages of this part
+            options.linksOffline(".", linksDir.getAbsolutePath());
+            // Types of the other parts are read from their source files, but not documented
+            options.addStringOption("sourcepath", sourcesDirs.stream()
+                .map(File::getAbsolutePath)
+                .collect(Collectors.joining(File.pathSeparator)));
+        }
+
+        File optionsFile = new File(getTemporaryDir(), name + ".options");
+        options.write(optionsFile);
+        return optionsFile.toPath();
+    }
+
+    private static String packageOf(Path localPath) {
+        Path dir = localPath.getParent();
+        return dir == null ? "" : dir.toString().replace(File.separatorChar, '.');
+    }
+}
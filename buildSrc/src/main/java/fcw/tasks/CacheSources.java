@@ -0,0 +1,68 @@
+package fcw.tasks;
+
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+import fcw.Hashing;
+import fcw.Journal;
+import fcw.engine.DocEngine;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static fcw.Fingerprints.Entry;
+
+/**
+ * Stores the processed source files which {@link FingerprintSources} did not restore, so the next run can reuse them.
+ */
+public class CacheSources extends DefaultTask {
+    @Input public File sourcesDir;
+    @Input public File fingerprintsFile;
+    @Input public File cacheDir;
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    // Files which failed in ApplyDocs, as recorded in its journal, are not stored
+    @Optional @Input public File applyJournalFile;
+    // The settings ApplyDocs was run with, which make up the key of its journal
+    @Classpath public FileCollection classpath;
+    @Input public String docFileExtension = ".json";
+    @Optional @Input public File pkgInfoTemplate;
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path sourcesRoot = sourcesDir.toPath().toAbsolutePath();
+        final Path cacheRoot = cacheDir.toPath().toAbsolutePath();
+        final Fingerprints fingerprints = Fingerprints.read(fingerprintsFile);
+        final Journal applied = Journal.read(applyJournalFile,
+            DocEngine.applyJournalKey(classpath.getFiles(), docFileExtension, pkgInfoTemplate));
+
+        final List<Path> processed = fingerprints.files.entrySet().stream()
+            .filter(entry -> entry.getValue().output == null && !applied.hasFailed(entry.getKey()))
+            .map(entry -> sourcesRoot.resolve(entry.getKey()))
+            .filter(Files::exists)
+            .collect(Collectors.toList());
+
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            scheduler.run(processed, file -> {
+                final String local = Fingerprints.localPath(sourcesRoot, file);
+                final Entry entry = fingerprints.files.get(local);
+                final Path cached = cacheRoot.resolve(local);
+
+                Files.createDirectories(cached.getParent());
+                Files.copy(file, cached, StandardCopyOption.REPLACE_EXISTING);
+                entry.output = Hashing.sha1(file);
+            });
+        }
+
+        fingerprints.write(fingerprintsFile);
+    }
+}
@@ -1,43 +1,76 @@
 package fcw.tasks;
 
+import fcw.DocRepositoryService;
+import fcw.info.DocRepository;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.artifacts.component.ComponentIdentifier;
-import org.gradle.api.artifacts.result.ArtifactResolutionResult;
-import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.ArchiveOperations;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
-import org.gradle.jvm.JvmLibrary;
-import org.gradle.language.base.artifact.SourcesArtifact;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
 
 public class CopySources extends DefaultTask {
     @Input public File destDir;
-    @Input public ComponentIdentifier artifact;
+    // The sources jar of the artifact, only resolved once the task runs
+    @InputFiles public FileCollection sourcesJar;
+    // Copies only the sources with a doc file in this directory if set, the others then only resolve from the classpath
+    @Optional @Input public File docsDir;
+    @Input public String docFileExtension = ".json";
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    private final FileSystemOperations fileSystem;
+    private final ArchiveOperations archives;
+
+    @Inject
+    public CopySources(FileSystemOperations fileSystem, ArchiveOperations archives) {
+        this.fileSystem = fileSystem;
+        this.archives = archives;
+    }
 
     @TaskAction
-    @SuppressWarnings({ "unchecked", "UnstableApiUsage" })
-    public void act() {
-        ArtifactResolutionResult result = getProject().getDependencies().createArtifactResolutionQuery()
-            .forComponents(artifact)
-            .withArtifacts(JvmLibrary.class, SourcesArtifact.class)
-            .execute();
-
-        File artifactFile = result.getResolvedComponents().stream()
-            .flatMap(componentArtifactsResult -> componentArtifactsResult.getArtifacts(SourcesArtifact.class).stream())
-            .map(artifactResult -> ((ResolvedArtifactResult) artifactResult).getFile())
-            .findFirst()
-            .orElseThrow(() -> new IllegalArgumentException("No source artifact found for " + artifact));
+    public void act() throws IOException {
+        File artifactFile = sourcesJar.getSingleFile();
+        Set<String> documented = docsDir == null ? null : documentedSources();
 
         if (destDir.exists() && !destDir.delete()) {
             throw new IllegalStateException("Unable to delete/clear source folder " + destDir);
         }
 
-        getProject().copy(spec -> {
-            spec.from(getProject().zipTree(artifactFile));
+        final AtomicInteger copied = new AtomicInteger();
+        fileSystem.copy(spec -> {
+            spec.from(archives.zipTree(artifactFile));
             spec.into(destDir);
-            spec.include("**/*.java");
+            if (documented == null) {
+                spec.include("**/*.java");
+            } else {
+                spec.include(element -> element.isDirectory() || documented.contains(element.getRelativePath().getPathString()));
+            }
             spec.setIncludeEmptyDirs(false);
+            spec.eachFile(file -> copied.incrementAndGet());
         });
+        if (documented != null) {
+            // Doc files without a source file in the jar are left out, so fewer files may be copied than there are doc files
+            getLogger().lifecycle("Sparse workspace: only copied {} source files with a doc file, of {} doc files",
+                copied.get(), documented.size());
+        }
+    }
+
+    // The paths of the source files with a doc file, in the form of the paths in the jar
+    private Set<String> documentedSources() {
+        final DocRepository docs = DocRepositoryService.of(docRepository, docsDir, docFileExtension);
+        return docs.files().values().stream()
+            .map(docs::localSource)
+            .collect(Collectors.toSet());
     }
 }
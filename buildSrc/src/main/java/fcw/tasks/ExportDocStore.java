@@ -0,0 +1,40 @@
+package fcw.tasks;
+
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.info.DocStore;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ExportDocStore extends DefaultTask {
+    @Input public File storeDir;
+    @Input public File docsDir;
+    @Input public String version;
+    @Input public String docFileExtension = ".json";
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    @Input public boolean force;
+    // Told that the doc files changed by the export, for the tasks which run after this one
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    // Gradle only sets options through a setter
+    @Option(option = "force", description = "Replaces the doc files even if the doc store lacks some of them as they are")
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        DocStore store = new DocStore(storeDir.toPath());
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            int count = store.exportDocs(version, DocRepositoryService.of(docRepository, docsDir, docFileExtension), scheduler, force);
+            getLogger().lifecycle("Exported {} doc files of version {} from {}", count, version, storeDir);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fcw.tasks;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+import fcw.Hashing;
+import fcw.ParserUtils;
+import fcw.info.DocRepository;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fcw.Fingerprints.Entry;
+
+/**
+ * Fingerprints the source files of a source set and restores the processed output of the last run for every file
+ * whose content and doc file did not change, so the processing tasks only need to handle the changed files.
+ */
+public class FingerprintSources extends DefaultTask {
+    @Input public File sourcesDir;
+    @Input public File docsDir;
+    @Input public String docFileExtension = ".json";
+    @Input public File fingerprintsFile;
+    @Input public File cacheDir;
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path sourcesRoot = sourcesDir.toPath().toAbsolutePath();
+        final DocRepository docs = DocRepositoryService.of(docRepository, docsDir, docFileExtension);
+        final Path cacheRoot = cacheDir.toPath().toAbsolutePath();
+
+        final Fingerprints previous = Fingerprints.read(fingerprintsFile);
+        final Map<String, Entry> files = new ConcurrentHashMap<>();
+        final AtomicInteger reused = new AtomicInteger();
+        final AtomicInteger added = new AtomicInteger();
+        final AtomicInteger apiChanged = new AtomicInteger();
+        // No symbols are resolved, as the declarations are compared as they are written
+        final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(JavaParser::new);
+
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            scheduler.run(FileScheduler.collect(sourcesRoot, path -> path.toString().endsWith(".java")), file -> {
+                final String local = Fingerprints.localPath(sourcesRoot, file);
+                final String hash = Hashing.sha1(file);
+                final Path cached = cacheRoot.resolve(local);
+                final Entry old = previous.files.get(local);
+
+                final Entry entry = new Entry();
+                // The file may still be the output of the last run, if it was not copied again since
+                entry.content = old != null && hash.equals(old.output) ? old.content : hash;
+                entry.doc = docs.hash(docs.docFile(sourcesRoot.relativize(file)));
+
+                if (old != null && old.output != null
+                    && entry.content.equals(old.content)
+                    && Objects.equals(entry.doc, old.doc)
+                    && (hash.equals(old.output) || Files.exists(cached))) {
+                    if (!hash.equals(old.output)) {
+                        Files.copy(cached, file, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    entry.api = old.api;
+                    entry.output = old.output;
+                    reused.incrementAndGet();
+                } else {
+                    final ParseResult<CompilationUnit> result = parsers.get().parse(file);
+                    entry.api = result.getResult()
+                        .map(cu -> Hashing.sha1(ParserUtils.toSignature(cu)))
+                        .orElse(null);
+                    if (old == null) {
+                        added.incrementAndGet();
+                    } else if (!Objects.equals(entry.api, old.api)) {
+                        apiChanged.incrementAndGet();
+                    }
+                }
+                files.put(local, entry);
+            });
+        }
+
+        for (String removed : previous.files.keySet()) {
+            if (!files.containsKey(removed)) {
+                Files.deleteIfExists(cacheRoot.resolve(removed));
+            }
+        }
+
+        final Fingerprints current = new Fingerprints();
+        current.files.putAll(files);
+        current.write(fingerprintsFile);
+
+        final int changed = files.size() - reused.get() - added.get();
+        getLogger().lifecycle("{} source files: {} unchanged, {} new, {} changed ({} with changed declarations), {} removed",
+            files.size(), reused.get(), added.get(), changed, apiChanged.get(),
+            previous.files.keySet().stream().filter(local -> !files.containsKey(local)).count());
+    }
+}
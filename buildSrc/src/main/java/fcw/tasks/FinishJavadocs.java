@@ -0,0 +1,36 @@
+package fcw.tasks;
+
+import fcw.site.PageMap;
+import fcw.site.SiteMerger;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Finishes the output of a javadoc run: copies the extra files into it and writes its page map, see {@link PageMap}.
+ * As a plain action rather than a closure of the build script, it does not keep the project of the task around.
+ */
+public class FinishJavadocs implements Action<Task> {
+    private final File extraDir;
+    private final File siteDir;
+
+    public FinishJavadocs(File extraDir, File siteDir) {
+        this.extraDir = extraDir;
+        this.siteDir = siteDir;
+    }
+
+    @Override
+    public void execute(Task task) {
+        try {
+            if (extraDir.isDirectory()) {
+                SiteMerger.copyTree(extraDir.toPath(), siteDir.toPath());
+            }
+            PageMap.write(siteDir.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
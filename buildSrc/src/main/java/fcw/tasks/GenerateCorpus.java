@@ -0,0 +1,54 @@
+package fcw.tasks;
+
+import fcw.bench.SyntheticCorpus;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import javax.inject.Inject;
+
+/**
+ * Generates a synthetic corpus of sources and doc files into {@code sources} and {@code docs} of the output
+ * directory, and the classes of the sources into {@code corpus.jar}. See {@link SyntheticCorpus}.
+ */
+public class GenerateCorpus extends DefaultTask {
+    @Input public File outputDir;
+    // Number of top-level classes
+    @Input public int classes;
+    // Share of the classes and members which are documented
+    @Input public double coverage = 0.6;
+    @Input public long seed = 42;
+
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public GenerateCorpus(FileSystemOperations fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path root = outputDir.toPath();
+        final Path marker = root.resolve("corpus.txt");
+        final String parameters = String.format(Locale.ROOT, "classes=%d coverage=%s seed=%d", classes, coverage, seed);
+        // Generating large corpora takes a while, and the same parameters always generate the same corpus
+        if (Files.exists(marker) && new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).equals(parameters)) {
+            getLogger().lifecycle("Corpus in {} is up to date", outputDir);
+            return;
+        }
+
+        fileSystem.delete(spec -> spec.delete(outputDir));
+        final SyntheticCorpus corpus = new SyntheticCorpus(root.resolve("sources"), root.resolve("docs"), coverage, seed);
+        final String summary = corpus.generate(classes);
+        corpus.writeClasses(root.resolve("corpus.jar"));
+        Files.write(marker, parameters.getBytes(StandardCharsets.UTF_8));
+        getLogger().lifecycle("Generated {}", summary);
+    }
+}
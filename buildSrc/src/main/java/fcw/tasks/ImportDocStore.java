@@ -0,0 +1,31 @@
+package fcw.tasks;
+
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.info.DocStore;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ImportDocStore extends DefaultTask {
+    @Input public File storeDir;
+    @Input public File docsDir;
+    @Input public String version;
+    @Input public String docFileExtension = ".json";
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    @TaskAction
+    public void act() throws IOException {
+        DocStore store = new DocStore(storeDir.toPath());
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            int count = store.importDocs(version, DocRepositoryService.of(docRepository, docsDir, docFileExtension), scheduler);
+            getLogger().lifecycle("Imported {} doc files as version {} into {}", count, version, storeDir);
+        }
+    }
+}
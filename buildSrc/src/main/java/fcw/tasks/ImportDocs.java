@@ -0,0 +1,55 @@
+package fcw.tasks;
+
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.info.DocImport;
+import fcw.info.DocRepository;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Imports a batch of javadocs of single classes and members into the doc files, see {@link DocImport} for the format
+ * of the batch and when entries conflict. Nothing is imported if any line of the batch is invalid.
+ */
+public class ImportDocs extends DefaultTask {
+    @Optional @Input public File batchFile;
+    @Input public File docsDir;
+    @Input public String docFileExtension = ".json";
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    // Report with a line per conflicting entry, written even if there are none
+    @Optional @Input public File reportFile;
+    // Told which doc files changed, for the tasks which run after this one
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    @TaskAction
+    public void act() throws IOException {
+        if (batchFile == null) throw new GradleException("No batch to import, pass it with -PdocBatch=<file>");
+        final DocRepository docs = DocRepositoryService.of(docRepository, docsDir, docFileExtension);
+        final DocImport batch = DocImport.read(batchFile.toPath(), docs);
+        if (!batch.invalid().isEmpty()) {
+            batch.invalid().forEach(problem -> getLogger().error(problem));
+            throw new GradleException(batch.invalid().size() + " invalid line(s) in " + batchFile + ", nothing was imported");
+        }
+
+        final DocImport.Summary summary;
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            summary = batch.importDocs(docs, scheduler);
+        }
+        summary.conflicts.forEach(conflict -> getLogger().warn(conflict));
+        if (reportFile != null) {
+            Files.createDirectories(reportFile.toPath().toAbsolutePath().getParent());
+            Files.write(reportFile.toPath(), summary.conflicts, StandardCharsets.UTF_8);
+        }
+        getLogger().lifecycle("Imported {}", summary);
+    }
+}
@@ -0,0 +1,108 @@
+package fcw.tasks;
+
+import fcw.engine.Main;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+/**
+ * Installs the command line engine, see {@link Main}, with launcher scripts for *nix and Windows into the install
+ * directory.
+ *
+ * <p>On Java 11 or newer, it also writes a class data sharing archive of the classes all commands load in a training
+ * run on the sample sources, as parsed and verified at install time, which saves most of the start-up of every run.</p>
+ */
+public class InstallCli extends DefaultTask {
+    // The jar and the libraries of the engine, see the cliLibs task of buildSrc
+    @Input public File libsDir;
+    @Input public File installDir;
+    // Sources the commands are trained on, they are copied as the commands change them
+    @Input public File trainingSources;
+    @Input public File pkgInfoTemplate;
+    @Input public String docFileExtension = ".json";
+
+    private final ExecOperations exec;
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public InstallCli(ExecOperations exec, FileSystemOperations fileSystem) {
+        this.exec = exec;
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final File libDir = new File(installDir, "lib");
+        fileSystem.sync(spec -> {
+            spec.from(libsDir);
+            spec.into(libDir);
+        });
+        // The launchers use the same classpath as the archive, class data sharing is disabled if it differs
+        final String classpath = Arrays.stream(libDir.listFiles())
+            .filter(file -> file.getName().endsWith(".jar"))
+            .sorted()
+            .map(File::getAbsolutePath)
+            .collect(Collectors.joining(File.pathSeparator));
+        final String java = new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+        final File archive = new File(installDir, "fcw.jsa");
+        fileSystem.delete(spec -> spec.delete(archive));
+
+        if (JavaVersion.current().isJava11Compatible()) {
+            train(java, classpath, archive);
+        } else {
+            getLogger().lifecycle("Class data sharing needs Java 11 or newer, the command line engine starts without an archive");
+        }
+
+        // FCW_JAVA selects another java, which starts without the archive unless it is the one the archive was made with
+        final String share = archive.exists() ? "-XX:SharedArchiveFile=\"" + archive + "\" -Xshare:auto " : "";
+        final File launcher = new File(installDir, "fcw");
+        Files.write(launcher.toPath(), ("#!/bin/sh\n"
+            + "exec \"${FCW_JAVA:-" + java + "}\" " + share + "-cp \"" + classpath + "\" fcw.engine.Main \"$@\"\n")
+            .getBytes(StandardCharsets.UTF_8));
+        launcher.setExecutable(true);
+        Files.write(new File(installDir, "fcw.bat").toPath(), ("@echo off\r\n"
+            + "setlocal\r\n"
+            + "if \"%FCW_JAVA%\"==\"\" set FCW_JAVA=" + java + "\r\n"
+            + "\"%FCW_JAVA%\" " + share + "-cp \"" + classpath + "\" fcw.engine.Main %*\r\n")
+            .getBytes(StandardCharsets.UTF_8));
+        getLogger().lifecycle("Installed the command line engine, run {} --help", launcher);
+    }
+
+    // Runs each command on a copy of the training sources, listing the classes it loads, and dumps them into the archive
+    private void train(String java, String classpath, File archive) throws IOException {
+        final File training = new File(installDir, "training");
+        fileSystem.delete(spec -> spec.delete(training));
+        fileSystem.copy(spec -> {
+            spec.from(trainingSources);
+            spec.into(new File(training, "sources"));
+        });
+
+        final Set<String> classes = new LinkedHashSet<>();
+        for (String command : Arrays.asList("make", "strip", "apply")) {
+            final File classList = new File(training, command + ".classlist");
+            exec.exec(spec -> spec.commandLine(java, "-XX:DumpLoadedClassList=" + classList, "-cp", classpath,
+                Main.class.getName(), command, "--sources", new File(training, "sources"), "--docs", new File(training, "docs"),
+                "--classpath", classpath, "--class-index", new File(training, "class-index"), "--template", pkgInfoTemplate,
+                "--extension", docFileExtension, "--threads", "1"));
+            classes.addAll(Files.readAllLines(classList.toPath(), StandardCharsets.UTF_8));
+        }
+
+        final File classList = new File(training, "fcw.classlist");
+        Files.write(classList.toPath(), classes, StandardCharsets.UTF_8);
+        exec.exec(spec -> spec.commandLine(java, "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+            "-XX:SharedArchiveFile=" + archive, "-cp", classpath));
+    }
+}
@@ -0,0 +1,122 @@
+package fcw.tasks;
+
+import fcw.site.SiteUpdater;
+import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.javadoc.Javadoc;
+import org.gradle.external.javadoc.StandardJavadocDocletOptions;
+import org.gradle.jvm.toolchain.JavadocTool;
+import org.gradle.process.ExecOperations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.tools.DocumentationTool;
+import javax.tools.ToolProvider;
+
+/**
+ * Further javadoc runs with the options, classpath and javadoc tool of a {@link Javadoc} task. The settings are read
+ * from the task lazily, and no reference to the task is kept, so the tasks making the runs need not configure it.
+ */
+public class JavadocRuns {
+    private final Provider<File> destinationDir;
+    private final Provider<StandardJavadocDocletOptions> options;
+    private final FileCollection classpath;
+    private final Provider<JavadocTool> tool;
+
+    public JavadocRuns(Project project, TaskProvider<Javadoc> javadoc) {
+        this.destinationDir = project.provider(() -> javadoc.get().getDestinationDir());
+        this.options = project.provider(() -> (StandardJavadocDocletOptions) javadoc.get().getOptions());
+        this.classpath = project.files(project.provider(() -> javadoc.get().getClasspath()));
+        this.tool = project.provider(() -> javadoc.get().getJavadocTool().get());
+    }
+
+    /**
+     * The output directory of the task.
+     */
+    public File getDestinationDir() {
+        return destinationDir.get();
+    }
+
+    /**
+     * A copy of the options of the task for a run over the given source files into the given directory.
+     */
+    public StandardJavadocDocletOptions options(List<File> sourceFiles, File destination) {
+        final StandardJavadocDocletOptions copy = new StandardJavadocDocletOptions(options.get());
+        copy.setDestinationDirectory(destination);
+        copy.setClasspath(new ArrayList<>(classpath.getFiles()));
+        copy.setSourceNames(sourceFiles.stream().map(File::getAbsolutePath).collect(Collectors.toList()));
+        return copy;
+    }
+
+    /**
+     * Runs the javadoc tool of the task on an options file in a process of its own.
+     */
+    public void run(ExecOperations exec, File optionsFile) {
+        exec.exec(spec -> {
+            spec.executable(tool.get().getExecutablePath().getAsFile());
+            spec.args("@" + optionsFile.getAbsolutePath());
+        });
+    }
+
+    /**
+     * Runs javadoc on an options file in this JVM, which saves starting a process and warming it up on each run. This
+     * is only done if the javadoc tool of the task is the one of this JVM, otherwise {@code false} is returned.
+     * Warnings are passed to the log.
+     */
+    public boolean runInProcess(File optionsFile, Consumer<String> log) throws IOException {
+        final File javaHome = new File(System.getProperty("java.home")).getCanonicalFile();
+        if (!tool.get().getMetadata().getInstallationPath().getAsFile().getCanonicalFile().equals(javaHome)) {
+            return false;
+        }
+        final DocumentationTool javadoc = ToolProvider.getSystemDocumentationTool();
+        if (javadoc == null) return false;
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final int result = javadoc.run(null, output, output, "@" + optionsFile.getAbsolutePath());
+        final String text = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        if (result != 0) {
+            throw new IllegalStateException("javadoc failed with exit code " + result + ":\n" + text);
+        }
+        Arrays.stream(text.split("\\R"))
+            .filter(line -> line.contains("warning"))
+            .forEach(log);
+        return true;
+    }
+
+    /**
+     * The runs of a {@link SiteUpdater}, which writes their options into the work directory. The runs over only some
+     * packages of a site are made in this JVM if possible, see {@link #runInProcess}, as they make up most updates.
+     */
+    public SiteUpdater.Javadoc forSite(File workDir, ExecOperations exec, Consumer<String> log) {
+        return (sourceFiles, destination, linkedSite) -> {
+            final StandardJavadocDocletOptions options = options(sourceFiles, destination);
+            if (linkedSite != null) {
+                // Relative to the destination, which is patched into the linked site under the same layout
+                options.linksOffline(".", linkedSite.getAbsolutePath());
+                if (options.getOverview() == null && new File(linkedSite, "overview-summary.html").exists()) {
+                    // Javadoc drops the overview links from all pages when it documents a single package only
+                    File overview = new File(workDir, "overview.html");
+                    Files.write(overview.toPath(), Collections.singleton("<html><body></body></html>"));
+                    options.setOverview(overview.getAbsolutePath());
+                }
+            }
+
+            File optionsFile = new File(workDir, "javadoc.options");
+            options.write(optionsFile);
+            if (linkedSite == null || !runInProcess(optionsFile, log)) {
+                run(exec, optionsFile);
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package fcw.tasks;
+
+import fcw.site.PageMap;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Merges the page maps of the javadoc sites of all versions, which are published next to each other, into the page
+ * map the version pickers of the sites share, see {@link PageMap}. The {@code merge-page-maps} command of the command
+ * line engine does the same without configuring the project, see {@link fcw.engine.Main}.
+ */
+public class MergePageMaps extends DefaultTask {
+    // Directory with a site per version, such as a checkout of the published javadocs
+    @Optional @Input public File sitesDir;
+
+    @TaskAction
+    public void act() throws IOException {
+        if (sitesDir == null) throw new GradleException("No sites to merge, pass their directory with -PsitesDir=<dir>");
+        final List<String> versions = PageMap.merge(sitesDir.toPath());
+        getLogger().lifecycle("Merged the page maps of versions {} into {}", versions, new File(sitesDir, PageMap.DIR));
+    }
+}
@@ -0,0 +1,46 @@
+package fcw.tasks;
+
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.info.DocIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Updates the index of the doc files and, if a query is given, lists the entries which match it. See
+ * {@link DocIndex} for the query syntax.
+ */
+public class QueryDocs extends DefaultTask {
+    @Input public File docsDir;
+    @Input public String docFileExtension = ".json";
+    @Input public File indexFile;
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    @Optional @Input public String query;
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    @TaskAction
+    public void act() throws IOException {
+        final DocIndex index = DocIndex.read(indexFile);
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            int changed = index.update(DocRepositoryService.of(docRepository, docsDir, docFileExtension), scheduler);
+            if (changed > 0) {
+                index.write(indexFile);
+                getLogger().lifecycle("Updated the index for {} changed doc files, {} entries in total", changed, index.entries.size());
+            }
+        }
+        if (query == null) return;
+
+        final long start = System.nanoTime();
+        final List<DocIndex.Entry> matches = index.query(query);
+        matches.forEach(entry -> getLogger().lifecycle(entry.toString()));
+        getLogger().lifecycle("{} matches for '{}' in {} ms", matches.size(), query, (System.nanoTime() - start) / 1_000_000);
+    }
+}
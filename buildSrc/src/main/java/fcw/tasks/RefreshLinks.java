@@ -0,0 +1,58 @@
+package fcw.tasks;
+
+import fcw.site.ExternalLinks;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+
+/**
+ * Replaces the cached package lists of the external javadoc sites with the current ones, see {@link ExternalLinks}.
+ * This is the only task which needs network access for the links, the cache is meant to be committed.
+ */
+public class RefreshLinks extends DefaultTask {
+    @Input public List<String> urls = new ArrayList<>();
+    @Input public File linksDir;
+
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public RefreshLinks(FileSystemOperations fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        // The lists are all fetched before the cache is replaced, so it is left as it was if any site fails
+        final Map<File, String> lists = new LinkedHashMap<>();
+        for (String url : urls) {
+            final String base = url.endsWith("/") ? url : url + "/";
+            String name = null;
+            String content = null;
+            for (int i = 0; i < ExternalLinks.LIST_NAMES.length && content == null; i++) {
+                name = ExternalLinks.LIST_NAMES[i];
+                content = ExternalLinks.fetch(base + name);
+            }
+            if (content == null) throw new GradleException("No element-list or package-list at " + url);
+            lists.put(new File(ExternalLinks.cacheDir(linksDir, url), name), content);
+            getLogger().lifecycle("Fetched the {} of {}", name, url);
+        }
+
+        fileSystem.delete(spec -> spec.delete(linksDir));
+        for (Map.Entry<File, String> list : lists.entrySet()) {
+            Files.createDirectories(list.getKey().getParentFile().toPath());
+            Files.write(list.getKey().toPath(), list.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
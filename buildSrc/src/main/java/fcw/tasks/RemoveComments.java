@@ -1,51 +1,48 @@
 package fcw.tasks;
 
-import com.github.javaparser.ast.comments.Comment;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
-import com.github.javaparser.utils.SourceRoot;
-import fcw.ParserUtils;
+import fcw.DocRepositoryService;
+import fcw.Fingerprints;
+import fcw.Journal;
+import fcw.engine.DocEngine;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Path;
 
+/**
+ * Removes the javadocs from the source files, see {@link DocEngine#removeComments}.
+ */
 public class RemoveComments extends DefaultTask {
     @Input public File sourcesDir;
-    @Input public Configuration configuration;
+    @Classpath public FileCollection classpath;
+    // Shared directory of the class indexes of the classpath
+    @Input public File classIndexDir;
     @Input public boolean skipPackageInfo = true;
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    // Files which FingerprintSources restored from the last run are skipped
+    @Optional @Input public File fingerprintsFile;
+    // Files which the journal of ApplyDocs records as done with their current doc file are skipped, so a failed or
+    // interrupted applyDocs resumes instead of starting over
+    @Optional @Input public File applyJournalFile;
+    // The template ApplyDocs was run with, which is part of the key of its journal
+    @Optional @Input public File pkgInfoTemplate;
+    @Optional @Input public File docsDir;
+    @Input public String docFileExtension = ".json";
+    @Internal public Provider<DocRepositoryService> docRepository;
 
     @TaskAction
     public void act() throws IOException {
-        SourceRoot sourceRoot = new SourceRoot(sourcesDir.toPath());
-        Path docsRoot = sourcesDir.toPath().toAbsolutePath();
-
-        CombinedTypeSolver typeSolver = new CombinedTypeSolver();
-        typeSolver.add(new ReflectionTypeSolver());
-        for (File jar : configuration.getFiles()) {
-            typeSolver.add(new JarTypeSolver(jar));
-        }
-
-        JavaSymbolSolver symbolSolver = new JavaSymbolSolver(typeSolver);
-        sourceRoot.getParserConfiguration()
-            .setSymbolResolver(symbolSolver)
-            .setAttributeComments(true);
-        sourceRoot.setPrinter(ParserUtils.PRINTER::print);
-
-        sourceRoot.parseParallelized("", (localPath, absolutePath, result) -> {
-            if (skipPackageInfo && localPath.getFileName().toString().endsWith("package-info.java")) {
-                return SourceRoot.Callback.Result.DONT_SAVE;
-            }
-            result.ifSuccessful(compilationUnit -> compilationUnit.getAllComments().stream()
-                .filter(Comment::isJavadocComment)
-                .forEach(Comment::remove));
-            return SourceRoot.Callback.Result.SAVE;
-        });
+        new DocEngine(classpath.getFiles(), classIndexDir, threads)
+            .log(getLogger()::lifecycle, getLogger()::error)
+            .removeComments(getName(), sourcesDir.toPath(), null, skipPackageInfo, Fingerprints.reused(fingerprintsFile),
+                docsDir != null ? DocRepositoryService.of(docRepository, docsDir, docFileExtension) : null,
+                Journal.read(applyJournalFile, DocEngine.applyJournalKey(classpath.getFiles(), docFileExtension, pkgInfoTemplate)));
     }
 }
@@ -0,0 +1,66 @@
+package fcw.tasks;
+
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.info.DocCoverage;
+import fcw.info.DocRepository;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reports how much of the API of the workspace sources the doc files document, per package and class, as JSON and
+ * CSV. See {@link DocCoverage} for what is counted.
+ */
+public class ReportCoverage extends DefaultTask {
+    @Input public File docsDir;
+    @Input public File sourcesDir;
+    @Classpath public FileCollection classpath;
+    // Shared directory of the class indexes of the classpath
+    @Input public File classIndexDir;
+    @Input public String docFileExtension = ".json";
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    // Declarations and documented keys per file as of the last run
+    @Input public File cacheFile;
+    @Input public File jsonFile;
+    @Input public File csvFile;
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    @TaskAction
+    public void act() throws IOException {
+        final DocRepository docs = DocRepositoryService.of(docRepository, docsDir, docFileExtension);
+        final DocCoverage coverage = DocCoverage.read(cacheFile);
+        final Queue<String> problems = new ConcurrentLinkedQueue<>();
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            final int identified = coverage.update(sourcesDir.toPath().toAbsolutePath(), docs, classpath.getFiles(),
+                classIndexDir, scheduler, problems);
+            getLogger().lifecycle("Identified the declarations of {} changed source files", identified);
+        }
+        coverage.write(cacheFile);
+
+        final Map<String, Map<String, DocCoverage.Counts>> counts = coverage.counts(docs);
+        DocCoverage.writeJson(counts, jsonFile.toPath());
+        DocCoverage.writeCsv(counts, csvFile.toPath());
+
+        problems.stream().sorted().forEach(problem -> getLogger().warn(problem));
+        if (!problems.isEmpty()) {
+            getLogger().warn("{} source files could not be parsed and are not counted", problems.size());
+        }
+        final DocCoverage.Counts total = DocCoverage.total(counts.values());
+        for (int kind = 0; kind < DocCoverage.KINDS.length; kind++) {
+            final int all = total.documented[kind] + total.undocumented[kind];
+            getLogger().lifecycle("Documented {}: {} of {} ({}%)", DocCoverage.KINDS[kind], total.documented[kind], all,
+                all == 0 ? 0 : Math.round(1000.0 * total.documented[kind] / all) / 10.0);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fcw.tasks;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import fcw.DocRepositoryService;
+import fcw.DocUtils;
+import fcw.FileScheduler;
+import fcw.ParserUtils;
+import fcw.Stubs;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+/**
+ * Writes signature-only stubs of the documented source files, as the input for javadoc.
+ */
+public class StubSources extends DefaultTask {
+    @Input public File sourcesDir;
+    @Input public File docsDir;
+    @Input public File stubsDir;
+    @Input public String docFileExtension = ".json";
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public StubSources(FileSystemOperations fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path sourcesRoot = sourcesDir.toPath().toAbsolutePath();
+        final Path stubsRoot = stubsDir.toPath().toAbsolutePath();
+        fileSystem.delete(spec -> spec.delete(stubsDir));
+
+        final List<Path> sources = DocUtils.filter(sourcesDir, DocRepositoryService.of(docRepository, docsDir, docFileExtension)).stream()
+            .map(file -> file.toPath().toAbsolutePath())
+            .collect(Collectors.toList());
+        // Only the declarations are needed, so the stubs are made without resolving any symbols
+        final ParserConfiguration parserConfiguration = new ParserConfiguration().setAttributeComments(true);
+        final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(parserConfiguration));
+
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            // Javadocs may link to private members of any documented class, which the stubs then have to keep
+            final Set<String> references = ConcurrentHashMap.newKeySet();
+            scheduler.run(sources, file -> Stubs.collectReferences(
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8), references));
+
+            scheduler.run(sources, file -> {
+                final CompilationUnit cu = ParserUtils.parse(parsers.get(), file);
+                final Path stubFile = stubsRoot.resolve(sourcesRoot.relativize(file).toString());
+                Files.createDirectories(stubFile.getParent());
+                ParserUtils.save(Stubs.toStub(cu, references), stubFile);
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package fcw.tasks;
+
+import fcw.DocRepositoryService;
+import fcw.site.SiteUpdater;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.javadoc.Javadoc;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+
+/**
+ * Updates the output of a {@link Javadoc} task for the documented source files which changed since the last update,
+ * see {@link SiteUpdater}.
+ */
+public class UpdateJavadocs extends DefaultTask {
+    @Input public List<File> sourcesDirs = new ArrayList<>();
+    @Input public File docsDir;
+    @Input public String docFileExtension = ".json";
+    @Input public File stateFile;
+    // Copied into the output after a full generation
+    @Input public File extraDir;
+    @Internal public JavadocRuns javadoc;
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    private final ExecOperations exec;
+
+    @Inject
+    public UpdateJavadocs(ExecOperations exec) {
+        this.exec = exec;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        new SiteUpdater(javadoc.getDestinationDir().toPath(), sourcesDirs, stateFile.toPath(), extraDir.toPath(),
+            getTemporaryDir().toPath(), javadoc.forSite(getTemporaryDir(), exec, getLogger()::warn), getLogger()::lifecycle)
+            .update(DocRepositoryService.of(docRepository, docsDir, docFileExtension));
+    }
+}
@@ -0,0 +1,244 @@
+package fcw.tasks;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.AnnotationMemberDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.javadoc.Javadoc;
+import com.github.javaparser.resolution.SymbolResolver;
+import fcw.Declarations;
+import fcw.DocLint;
+import fcw.DocRepositoryService;
+import fcw.FileScheduler;
+import fcw.IdentifyingVisitor;
+import fcw.ParserThreads;
+import fcw.ParserUtils;
+import fcw.info.DocInfo;
+import fcw.info.DocRepository;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import static fcw.info.DocInfo.ClassInfo;
+
+/**
+ * Checks the doc files against the sources of the workspace without changing any source: every documented class,
+ * field and method has to exist in the source file, the HTML of the javadocs has to be well-formed, and their
+ * {@code {@link}} and {@code @see} references have to resolve. See {@link DocLint} and {@link Declarations} for what
+ * is checked exactly.
+ */
+public class ValidateDocs extends DefaultTask {
+    @Input public File docsDir;
+    @Input public File sourcesDir;
+    @Classpath public FileCollection classpath;
+    // Shared directory of the class indexes of the classpath
+    @Input public File classIndexDir;
+    @Input public String docFileExtension = ".json";
+    @Input public int threads = Runtime.getRuntime().availableProcessors();
+    // Report with a line per problem, written even if there are none
+    @Optional @Input public File reportFile;
+    @Input public boolean ignoreFailures = false;
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path sourcesRoot = sourcesDir.toPath().toAbsolutePath();
+        final DocRepository docs = DocRepositoryService.of(docRepository, docsDir, docFileExtension);
+        final Path docsRoot = docs.root();
+
+        final ParserThreads parsers = new ParserThreads(classpath.getFiles(), classIndexDir);
+        final Declarations declarations = new Declarations(parsers.classIndex());
+        final Queue<String> problems = new ConcurrentLinkedQueue<>();
+        // References are checked once all declarations of the workspace are known
+        final Queue<Reference> references = new ConcurrentLinkedQueue<>();
+
+        final Set<Path> unmatched = new HashSet<>(docs.files().values());
+        final List<Path> sources = FileScheduler.collect(sourcesRoot, path -> path.toString().endsWith(".java"));
+        for (Path source : sources) {
+            unmatched.remove(docs.docFile(sourcesRoot.relativize(source)));
+        }
+
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), threads)) {
+            scheduler.run(sources, source -> {
+                final Path docFile = docs.docFile(sourcesRoot.relativize(source));
+                final String local = docsRoot.relativize(docFile).toString();
+                try {
+                    final CompilationUnit cu = ParserUtils.parse(parsers.parser(), source);
+                    final Declarations.Scope scope = declarations.add(cu);
+                    if (Files.notExists(docFile)) return;
+
+                    if (source.getFileName().toString().equals("package-info.java")) {
+                        validate(local, "package", docs.packageInfo(docFile).javadoc, scope, null, problems, references);
+                    } else {
+                        validate(local, cu, docs.docInfo(docFile), scope, parsers.resolver(), problems, references);
+                    }
+                } catch (RuntimeException e) {
+                    problems.add(local + ": unable to validate: " + e.getMessage());
+                }
+            });
+        }
+
+        for (Path docFile : unmatched) {
+            final String local = docsRoot.relativize(docFile).toString();
+            if (local.endsWith("package-info" + docFileExtension)) {
+                // Applying the docs creates missing package-info files from the template
+                final String pkg = docsRoot.relativize(docFile.getParent()).toString().replace(File.separatorChar, '.');
+                final Declarations.Scope scope = declarations.add(new CompilationUnit(pkg));
+                validate(local, "package", docs.packageInfo(docFile).javadoc, scope, null, problems, references);
+            } else {
+                problems.add(local + ": no source file");
+            }
+        }
+
+        for (Reference reference : references) {
+            final String problem = declarations.check(reference.target, reference.scope, reference.context);
+            if (problem != null) problems.add(reference.location + ": " + problem);
+        }
+
+        final List<String> sorted = problems.stream().sorted().collect(Collectors.toList());
+        sorted.forEach(problem -> getLogger().error(problem));
+        if (reportFile != null) {
+            Files.createDirectories(reportFile.toPath().toAbsolutePath().getParent());
+            Files.write(reportFile.toPath(), sorted, StandardCharsets.UTF_8);
+        }
+        if (!sorted.isEmpty()) {
+            final String message = sorted.size() + " problem(s) in the doc files in " + docsDir;
+            if (!ignoreFailures) throw new GradleException(message);
+            getLogger().warn(message);
+        } else {
+            getLogger().lifecycle("No problems in the doc files in {}", docsDir);
+        }
+    }
+
+    private static void validate(String file, CompilationUnit cu, DocInfo doc, Declarations.Scope scope,
+                                 SymbolResolver resolver, Queue<String> problems, Queue<Reference> references) {
+        final KeysVisitor keys = new KeysVisitor(resolver, doc);
+        keys.visit(cu);
+
+        for (ClassInfo classInfo : doc.classes.values()) {
+            final String context = classInfo.name.replace('$', '.');
+            if (!keys.classes.contains(classInfo.name)) {
+                problems.add(file + ": " + classInfo.name + ": no such class in the source");
+                continue;
+            }
+            validate(file, classInfo.name, classInfo.javadoc, scope, context, problems, references);
+
+            for (ClassInfo.FieldInfo fieldInfo : classInfo.fields.values()) {
+                final String element = classInfo.name + "#" + fieldInfo.name;
+                if (keys.fields.contains(element)) {
+                    validate(file, element, fieldInfo.javadoc, scope, context, problems, references);
+                } else {
+                    problems.add(file + ": " + element + ": no such field in the source");
+                }
+            }
+            for (ClassInfo.MethodInfo methodInfo : classInfo.methods.values()) {
+                final String element = classInfo.name + "#" + methodInfo.name + " " + methodInfo.descriptor;
+                if (keys.methods.contains(element)) {
+                    validate(file, element, methodInfo.javadoc, scope, context, problems, references);
+                } else {
+                    problems.add(file + ": " + element + ": no such method in the source");
+                }
+            }
+        }
+    }
+
+    private static void validate(String file, String element, @Nullable Javadoc javadoc, Declarations.Scope scope,
+                                 @Nullable String context, Queue<String> problems, Queue<Reference> references) {
+        if (javadoc == null) return;
+        final String location = file + ": " + element;
+        DocLint.lintHtml(javadoc).forEach(problem -> problems.add(location + ": " + problem));
+        DocLint.references(javadoc).forEach(target -> references.add(new Reference(location, target, scope, context)));
+    }
+
+    private static class Reference {
+        final String location;
+        final String target;
+        final Declarations.Scope scope;
+        @Nullable final String context;
+
+        Reference(String location, String target, Declarations.Scope scope, @Nullable String context) {
+            this.location = location;
+            this.target = target;
+            this.scope = scope;
+            this.context = context;
+        }
+    }
+
+    // Collects the keys of the declarations of a source file the way the doc files identify them
+    static class KeysVisitor extends IdentifyingVisitor {
+        final Set<String> classes = new HashSet<>();
+        final Set<String> fields = new HashSet<>();
+        final Set<String> methods = new HashSet<>();
+        // "<class>#<method name>" of the documented methods
+        private final Set<String> documentedMethods = new HashSet<>();
+
+        public KeysVisitor(SymbolResolver resolver, DocInfo doc) {
+            super(resolver);
+            doc.classes.values().forEach(classInfo -> classInfo.methods.values()
+                .forEach(methodInfo -> documentedMethods.add(classInfo.name + "#" + methodInfo.name)));
+        }
+
+        @Override
+        protected boolean needsDescriptor(String name, VisitContext ctx) {
+            return documentedMethods.contains(ctx.getQualifiedName() + "#" + name);
+        }
+
+        // Anonymous classes are not visited as classes, but doc files list them for their members
+        private String member(VisitContext ctx, String member) {
+            classes.add(ctx.getQualifiedName());
+            return ctx.getQualifiedName() + "#" + member;
+        }
+
+        @Override
+        protected void visitClass(TypeDeclaration<?> n, VisitContext ctx) {
+            classes.add(ctx.getQualifiedName());
+        }
+
+        @Override
+        protected void visitEnumConstant(EnumConstantDeclaration n, VisitContext ctx) {
+            fields.add(member(ctx, n.getNameAsString()));
+        }
+
+        @Override
+        protected void visitField(FieldDeclaration n, VisitContext ctx) {
+            n.getVariables().forEach(variable -> fields.add(member(ctx, variable.getNameAsString())));
+        }
+
+        @Override
+        protected void visitMethod(MethodDeclaration n, String descriptor, VisitContext ctx) {
+            methods.add(member(ctx, n.getNameAsString() + " " + descriptor));
+        }
+
+        @Override
+        protected void visitConstructor(ConstructorDeclaration n, String descriptor, VisitContext ctx) {
+            methods.add(member(ctx, n.getNameAsString() + " " + descriptor));
+        }
+
+        @Override
+        protected void visitAnnotationMember(AnnotationMemberDeclaration n, String descriptor, VisitContext ctx) {
+            methods.add(member(ctx, n.getNameAsString() + " " + descriptor));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package fcw.tasks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fcw.FileScheduler;
+import fcw.Fingerprints;
+import fcw.info.DocImport;
+import fcw.info.DocInfo;
+import fcw.info.DocRepository;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+/**
+ * Imports the batch of the fixtures into a copy of their doc files, and fails unless the doc files, the conflicts and
+ * the summary are as expected, which checks the conflict rules of {@link DocImport}. It also fails if the import
+ * changed the doc files the repository decoded before, which the tasks of the build share.
+ *
+ * <p>The fixtures directory has the doc files in {@code docs}, the batch in {@code batch.jsonl}, the doc files after
+ * the import in {@code expected}, the conflicts in {@code conflicts.txt} and the summary in {@code summary.txt}.</p>
+ */
+public class VerifyDocImport extends DefaultTask {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Input public File fixturesDir;
+    @Input public File workDir;
+    @Input public String docFileExtension = ".json";
+
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public VerifyDocImport(FileSystemOperations fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final File docsDir = new File(workDir, "docs");
+        fileSystem.sync(spec -> {
+            spec.from(new File(fixturesDir, "docs"));
+            spec.into(docsDir);
+        });
+        final DocRepository docs = new DocRepository(docsDir.toPath(), docFileExtension);
+        // Decoded before the import, as by the tasks which ran before it
+        final Map<String, DocInfo> decoded = new TreeMap<>();
+        docs.files().forEach((name, docFile) -> decoded.put(name, docs.docInfo(docFile)));
+
+        final DocImport batch = DocImport.read(new File(fixturesDir, "batch.jsonl").toPath(), docs);
+        final List<String> problems = new ArrayList<>(batch.invalid());
+        final DocImport.Summary summary;
+        try (FileScheduler scheduler = new FileScheduler(getLogger()::lifecycle, getName(), 1)) {
+            summary = batch.importDocs(docs, scheduler);
+        }
+
+        // Written out again, they have to be the doc files of the fixtures
+        final File decodedDir = new File(workDir, "decoded");
+        fileSystem.delete(spec -> spec.delete(decodedDir));
+        for (Map.Entry<String, DocInfo> entry : decoded.entrySet()) {
+            final Path written = decodedDir.toPath().resolve(entry.getKey());
+            Files.createDirectories(written.getParent());
+            entry.getValue().write(written);
+            if (!readJson(written).equals(readJson(new File(fixturesDir, "docs/" + entry.getKey()).toPath()))) {
+                problems.add("The import changed doc file " + entry.getKey() + " as decoded before the import");
+            }
+        }
+        final List<String> conflicts = readLines(new File(fixturesDir, "conflicts.txt"));
+        if (!summary.conflicts.equals(conflicts)) {
+            problems.add("Expected the conflicts " + conflicts + ", but got " + summary.conflicts);
+        }
+        final String expectedSummary = String.join("", readLines(new File(fixturesDir, "summary.txt")));
+        if (!summary.toString().equals(expectedSummary)) {
+            problems.add("Expected the summary '" + expectedSummary + "', but got '" + summary + "'");
+        }
+
+        // Compared as JSON, so the line separators do not matter
+        final Map<String, Path> expected = docFiles(new File(fixturesDir, "expected").toPath());
+        final Map<String, Path> imported = docFiles(docsDir.toPath());
+        final Set<String> names = new TreeSet<>(expected.keySet());
+        names.addAll(imported.keySet());
+        for (String name : names) {
+            if (!expected.containsKey(name)) {
+                problems.add("Unexpected doc file " + name);
+            } else if (!imported.containsKey(name)) {
+                problems.add("Missing doc file " + name);
+            } else if (!readJson(expected.get(name)).equals(readJson(imported.get(name)))) {
+                problems.add("Doc file " + name + " differs from " + expected.get(name));
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            problems.forEach(problem -> getLogger().error(problem));
+            throw new GradleException(problems.size() + " problem(s) with the import of the fixtures in " + fixturesDir);
+        }
+        getLogger().lifecycle("Verified the import of the fixtures: {}", summary);
+    }
+
+    private Map<String, Path> docFiles(Path root) throws IOException {
+        final Map<String, Path> files = new TreeMap<>();
+        for (Path file : FileScheduler.collect(root, path -> path.toString().endsWith(docFileExtension))) {
+            files.put(Fingerprints.localPath(root, file), file);
+        }
+        return files;
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream()
+            .filter(line -> !line.trim().isEmpty())
+            .collect(Collectors.toList());
+    }
+
+    private static JsonNode readJson(Path file) throws IOException {
+        return JSON.readTree(file.toFile());
+    }
+}
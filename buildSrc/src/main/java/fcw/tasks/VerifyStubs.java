@@ -0,0 +1,78 @@
+package fcw.tasks;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import fcw.FileScheduler;
+import fcw.ParserUtils;
+import fcw.Stubs;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.external.javadoc.StandardJavadocDocletOptions;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+/**
+ * Writes the stubs of the source files of the fixtures, see {@link Stubs}, and runs javadoc over them, which fails if
+ * a stub is no valid source file. The fixtures hold the declarations stubs get wrong most easily, such as fields of
+ * interfaces and annotation types whose initializers are no constants.
+ */
+public class VerifyStubs extends DefaultTask {
+    @Input public File fixturesDir;
+    @Input public File workDir;
+    // The javadoc tool of the javadocs, only its tool is used
+    @Internal public JavadocRuns javadoc;
+
+    private final ExecOperations exec;
+    private final FileSystemOperations fileSystem;
+
+    @Inject
+    public VerifyStubs(ExecOperations exec, FileSystemOperations fileSystem) {
+        this.exec = exec;
+        this.fileSystem = fileSystem;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path fixturesRoot = fixturesDir.toPath().toAbsolutePath();
+        final Path stubsRoot = new File(workDir, "stubs").toPath();
+        final File javadocDir = new File(workDir, "javadoc");
+        fileSystem.delete(spec -> spec.delete(workDir));
+
+        final List<Path> sources = FileScheduler.collect(fixturesRoot, path -> path.toString().endsWith(".java"));
+        final Set<String> references = new HashSet<>();
+        for (Path file : sources) {
+            Stubs.collectReferences(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), references);
+        }
+        final JavaParser parser = new JavaParser(new ParserConfiguration().setAttributeComments(true));
+        for (Path file : sources) {
+            final Path stubFile = stubsRoot.resolve(fixturesRoot.relativize(file).toString());
+            Files.createDirectories(stubFile.getParent());
+            ParserUtils.save(Stubs.toStub(ParserUtils.parse(parser, file), references), stubFile);
+        }
+
+        final StandardJavadocDocletOptions options = new StandardJavadocDocletOptions();
+        options.setDestinationDirectory(javadocDir);
+        options.setSourceNames(sources.stream()
+            .map(file -> stubsRoot.resolve(fixturesRoot.relativize(file).toString()).toAbsolutePath().toString())
+            .collect(Collectors.toList()));
+        // The fixtures only document what they test
+        options.addBooleanOption("Xdoclint:none", true);
+        final File optionsFile = new File(workDir, "javadoc.options");
+        options.write(optionsFile);
+        javadoc.run(exec, optionsFile);
+        getLogger().lifecycle("Javadoc accepted the stubs of {} fixture(s) in {}", sources.size(), fixturesDir);
+    }
+}
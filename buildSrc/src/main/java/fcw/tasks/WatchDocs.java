@@ -0,0 +1,183 @@
+package fcw.tasks;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.comments.Comment;
+import fcw.DocRepositoryService;
+import fcw.ParserThreads;
+import fcw.ParserUtils;
+import fcw.engine.DocEngine;
+import fcw.info.DocRepository;
+import fcw.site.PreviewServer;
+import fcw.site.SiteUpdater;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Watches the doc files for changes, applies each changed doc file to its source file and updates the javadocs,
+ * while serving them on a local HTTP server which reloads open pages after each update. Runs until interrupted.
+ *
+ * <p>The javadocs are those of {@link UpdateJavadocs}, which has to run before. Only the changed files are documented
+ * again, or their packages if a package-info changed, in this JVM if possible, see {@link JavadocRuns#runInProcess}
+ * and {@link fcw.site.SiteUpdater}.</p>
+ */
+public class WatchDocs extends DefaultTask {
+    // How long to wait for more changes after one, as editors often write a file in several steps
+    private static final long SETTLE_MILLIS = 50;
+
+    @Input public File docsDir;
+    @Input public File sourcesDir;
+    @Input public File pkgInfoTemplate;
+    @Classpath public FileCollection classpath;
+    // Shared directory of the class indexes of the classpath
+    @Input public File classIndexDir;
+    @Input public String docFileExtension = ".json";
+    @Input public int port = 8000;
+    // The settings of the javadocs, taken from the updateJavadocs task
+    @Internal public Provider<JavadocRuns> javadoc;
+    @Internal public Provider<List<File>> javadocSourcesDirs;
+    @Internal public Provider<File> stateFile;
+    @Internal public Provider<File> extraDir;
+    @Internal public Provider<DocRepositoryService> docRepository;
+
+    private final ExecOperations exec;
+    private ParserThreads parsers;
+    private DocRepository docs;
+
+    @Inject
+    public WatchDocs(ExecOperations exec) {
+        this.exec = exec;
+    }
+
+    @TaskAction
+    public void act() throws IOException {
+        final Path docsRoot = docsDir.toPath().toAbsolutePath();
+        docs = DocRepositoryService.of(docRepository, docsDir, docFileExtension);
+
+        // Resolving against the jars is the expensive part, so the solver is kept for the whole session
+        parsers = new ParserThreads(classpath.getFiles(), classIndexDir);
+
+        final JavadocRuns runs = javadoc.get();
+        final SiteUpdater site = new SiteUpdater(runs.getDestinationDir().toPath(), javadocSourcesDirs.get(),
+            stateFile.get().toPath(), extraDir.get().toPath(), getTemporaryDir().toPath(),
+            runs.forSite(getTemporaryDir(), exec, getLogger()::warn), getLogger()::lifecycle);
+
+        final PreviewServer server = new PreviewServer(runs.getDestinationDir().toPath(), port);
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            register(watcher, docsRoot);
+            server.start();
+            getLogger().lifecycle("Serving javadocs at {}, watching {} for changes", server.getAddress(), docsRoot);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                final Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watcher.take();
+                while (key != null) {
+                    Path dir = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() == null) continue;
+                        Path file = dir.resolve((Path) event.context());
+                        if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                            register(watcher, file);
+                        } else if (file.toString().endsWith(docFileExtension)) {
+                            changed.add(file);
+                        }
+                    }
+                    key.reset();
+                    key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed.isEmpty()) continue;
+
+                // Authors are usually mid-edit, so errors are reported and the watch goes on
+                final long start = System.nanoTime();
+                docs.changed();
+                for (Path docFile : changed) {
+                    try {
+                        apply(docsRoot, docFile);
+                    } catch (IOException | RuntimeException e) {
+                        getLogger().error("Unable to apply doc file " + docFile, e);
+                    }
+                }
+                try {
+                    if (site.update(docs)) {
+                        server.notifyChanged();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    getLogger().error("Unable to update javadocs", e);
+                    continue;
+                }
+                getLogger().lifecycle("Applied {} changed doc file(s) in {} ms", changed.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Reapplies the docs of a single source file, starting from the source without any javadocs
+    private void apply(Path docsRoot, Path docFile) throws IOException {
+        Path localPath = docsRoot.relativize(docFile);
+        String pkg = localPath.getParent() != null
+            ? localPath.getParent().toString().replace(File.separatorChar, '.')
+            : "";
+        String fileName = localPath.getFileName().toString().replaceFirst(docFileExtension, ".java");
+        Path sourceFile = sourcesDir.toPath().resolve(localPath).resolveSibling(fileName);
+
+        if (Files.exists(docFile)) {
+            DocEngine.createPackageInfo(pkgInfoTemplate, pkg, sourceFile);
+        }
+        if (Files.notExists(sourceFile)) {
+            getLogger().warn("No source file {} for doc file {}", sourceFile, docFile);
+            return;
+        }
+
+        final CompilationUnit cu = ParserUtils.parse(parsers.parser(), sourceFile);
+
+        if (!fileName.endsWith("package-info.java")) {
+            cu.getAllComments().stream()
+                .filter(Comment::isJavadocComment)
+                .forEach(Comment::remove);
+        }
+        if (Files.exists(docFile)) {
+            DocEngine.applyDocs(cu, fileName, docs, docFile, parsers.resolver());
+        }
+        ParserUtils.save(cu, sourceFile);
+    }
+
+    private static void register(WatchService watcher, Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
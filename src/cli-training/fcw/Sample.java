@@ -0,0 +1,19 @@
+package fcw;
+
+import com.google.common.base.Strings;
+
+/** A sample class. */
+public class Sample {
+    /** A field. */
+    public int field;
+
+    /**
+     * A method.
+     *
+     * @param value a value
+     * @return the value, padded with {@link Strings#padStart}
+     */
+    public String method(String value) {
+        return Strings.padStart(value, 8, ' ');
+    }
+}
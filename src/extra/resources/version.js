@@ -1,6 +1,8 @@
-
 var version_picker;
 
+// Number of shards of the page map, the same as PageMap.SHARDS of the build
+var PAGE_MAP_SHARDS = 64;
+
 window.onload = () =>{
 
     version_picker = document.getElementById("version_picker");
@@ -12,13 +14,64 @@ window.onload = () =>{
 function on_switch(e) {
 
     var selected = e.srcElement.value
-    var url = window.location.href,
-        new_url = make_url(url, selected);
-    if (new_url != url) {
-      window.location.href = new_url;
-    }
+    var url = window.location.href;
+    find_url(url, selected).then(new_url => {
+        if (new_url != url) {
+          window.location.href = new_url;
+        }
+    });
 }
 
+// The root of the sites, the directory of the version, which is named as the versions of the picker such as 1.16.x,
+// the page within the site, and the query and fragment
+var SITE_URL = /^(.*?javadocs\/+)([0-9]+(?:\.[0-9]+)*(?:\.x)?)\/([^?#]*)(.*)$/;
+
 function make_url(url, new_version) {
-        return url.replace(/(javadocs[\/]*.*?\/)([1-9.]*?)(\/)/, "$1"+new_version+"$3");
-}
\ No newline at end of file
+    var match = url.match(SITE_URL);
+    return match ? match[1] + new_version + "/" + match[3] + match[4] : url;
+}
+
+// Looks the page up in the page map, so a page the other version lacks leads to the nearest package page it has
+function find_url(url, new_version) {
+    var match = url.match(SITE_URL);
+    var slash = match ? match[3].lastIndexOf("/") : -1;
+    // Pages outside of the packages are in every version
+    if (slash == -1) {
+        return Promise.resolve(make_url(url, new_version));
+    }
+    var root = match[1], page = match[3];
+    var pkg = page.substring(0, slash), name = page.substring(slash + 1);
+
+    return fetch(root + "page-map/" + shard(pkg) + ".json")
+        .then(response => response.ok ? response.json() : Promise.reject(response.status))
+        .then(map => {
+            var version = map.versions.indexOf(new_version);
+            var entry = map.packages[pkg];
+            if (version == -1 || !entry) {
+                return make_url(url, new_version);
+            }
+            if (!has_version(entry.in, version)) {
+                var up = entry.up[version];
+                return root + new_version + "/" + (up ? up + "/package-summary.html" : "index.html");
+            }
+            if (name in entry.pages && !has_version(entry.pages[name], version)) {
+                return root + new_version + "/" + pkg + "/package-summary.html";
+            }
+            return make_url(url, new_version);
+        })
+        .catch(() => make_url(url, new_version));
+}
+
+// The same as PageMap.shard: the hash of the package path as Java's String.hashCode, modulo the number of shards
+function shard(pkg) {
+    var hash = 0;
+    for (var i = 0; i < pkg.length; i++) {
+        hash = (Math.imul(31, hash) + pkg.charCodeAt(i)) | 0;
+    }
+    return ((hash % PAGE_MAP_SHARDS) + PAGE_MAP_SHARDS) % PAGE_MAP_SHARDS;
+}
+
+// Versions are bits of the number, which may have more bits than the bitwise operators handle
+function has_version(versions, version) {
+    return Math.floor(versions / Math.pow(2, version)) % 2 == 1;
+}
@@ -0,0 +1,24 @@
+package p;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A class whose fields lose the initializers which are not constant, and which holds an interface.
+ */
+public class Holder {
+    /** Created, not constant. */
+    public static final Map<String, Integer> VALUES = new HashMap<>();
+    /** Constant, shown with its value. */
+    public static final double RATIO = 0.5;
+
+    /**
+     * An interface nested in a class.
+     */
+    public interface Callback {
+        /** Called, not constant. */
+        double DEFAULT_RATIO = Math.sqrt(RATIO);
+
+        void call();
+    }
+}
@@ -0,0 +1,17 @@
+package p;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * An annotation type with fields, which are implicitly final without saying so.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Marker {
+    /** Called, not constant. */
+    String DEFAULT = String.valueOf(Settings.COUNT);
+    /** Constant, shown with its value. */
+    int LIMIT = Integer.MAX_VALUE - 1;
+
+    String value() default "";
+}
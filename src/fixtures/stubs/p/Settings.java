@@ -0,0 +1,30 @@
+package p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An interface whose fields are initialized by calls and creations, which a stub must not leave without initializer.
+ */
+public interface Settings {
+    /** Created, not constant. */
+    List<String> NAMES = new ArrayList<>();
+    /** Called, not constant. */
+    int COUNT = Integer.parseInt("3");
+    /** Called, not constant. */
+    boolean ENABLED = Boolean.getBoolean("p.enabled");
+    /** Constant, shown with its value. */
+    String NAME = "settings";
+    /** Declared together, only the second is not constant. */
+    long FIRST = 1L, SECOND = System.nanoTime();
+    /** An array, not constant. */
+    char[] SEPARATORS = {',', ';'};
+
+    /**
+     * An interface nested in an interface.
+     */
+    interface Nested {
+        /** Created, not constant. */
+        Object LOCK = new Object();
+    }
+}
@@ -0,0 +1,61 @@
+// Checks the version picker of version.js against the page map merged from the sites in this directory, which are
+// named like the deployed sites, such as 1.16.x. Run it after merging them:
+//
+//   cp -r src/fixtures/version-picker/sites build/version-picker
+//   java -cp "buildSrc/build/cli/lib/*" fcw.engine.Main merge-page-maps --sites build/version-picker
+//   node src/fixtures/version-picker/find_url_test.js build/version-picker
+
+var fs = require("fs");
+var path = require("path");
+var vm = require("vm");
+
+var sitesDir = process.argv[2];
+var resources = path.join(__dirname, "../../extra/resources");
+var ROOT = "https://forgecommunitywiki.github.io/javadocs/";
+
+// Serves the merged page map as the published sites do
+function fetch(url) {
+    var file = url.startsWith(ROOT) ? path.join(sitesDir, url.substring(ROOT.length)) : null;
+    if (!file || !fs.existsSync(file)) {
+        return Promise.resolve({ok: false, status: 404});
+    }
+    return Promise.resolve({ok: true, json: () => Promise.resolve(JSON.parse(fs.readFileSync(file, "utf8")))});
+}
+
+var picker = {window: {}, document: {}, fetch: fetch, Promise: Promise, Math: Math};
+vm.runInNewContext(fs.readFileSync(path.join(resources, "version.js"), "utf8"), picker);
+
+var failures = [];
+
+// The values of the picker are the versions of the page map, otherwise no page is looked up
+var header = fs.readFileSync(path.join(resources, "new_header.html"), "utf8");
+var values = [];
+header.replace(/<option value="([^"]*)"/g, (option, value) => values.push(value));
+var versions = JSON.parse(fs.readFileSync(path.join(sitesDir, "page-map", picker.shard("net/minecraft/block") + ".json"), "utf8")).versions;
+values.forEach(value => {
+    if (versions.indexOf(value) == -1) failures.push("The picker value " + value + " is not a version of the page map " + versions);
+});
+
+var cases = [
+    // In both versions
+    ["1.16.x/net/minecraft/block/Block.html", "1.15.x", "1.15.x/net/minecraft/block/Block.html"],
+    ["1.15.x/net/minecraft/block/Block.html?search#method()", "1.16.x", "1.16.x/net/minecraft/block/Block.html?search#method()"],
+    // Class missing in the other version
+    ["1.16.x/net/minecraft/block/BeehiveBlock.html", "1.15.x", "1.15.x/net/minecraft/block/package-summary.html"],
+    // Package missing in the other version
+    ["1.16.x/net/minecraftforge/client/model/obj/OBJModel.html#load", "1.15.x", "1.15.x/net/minecraftforge/client/model/package-summary.html"],
+    ["1.16.x/net/minecraftforge/client/model/obj/package-summary.html", "1.15.x", "1.15.x/net/minecraftforge/client/model/package-summary.html"],
+    // Not in the page map, the page is assumed to be in the other version
+    ["1.16.x/net/minecraft/item/Item.html", "1.15.x", "1.15.x/net/minecraft/item/Item.html"],
+    // Outside of the packages
+    ["1.16.x/index.html", "1.15.x", "1.15.x/index.html"],
+    ["1.16.x/overview-tree.html", "1.15.x", "1.15.x/overview-tree.html"]
+];
+
+Promise.all(cases.map(c => picker.find_url(ROOT + c[0], c[1]).then(url => {
+    if (url != ROOT + c[2]) failures.push(c[0] + " to " + c[1] + ": expected " + ROOT + c[2] + ", got " + url);
+}))).then(() => {
+    failures.forEach(failure => console.error(failure));
+    console.log(failures.length ? failures.length + " failure(s)" : "The picker finds the pages of all " + cases.length + " cases");
+    process.exit(failures.length ? 1 : 0);
+});